@@ -0,0 +1,70 @@
+package de.zeus.digraph;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streams queries line by line through a {@link QueryExecutor} and writes one
+ * result line per query.
+ *
+ * Neither input nor output is held in memory, so millions of queries can be
+ * processed against a graph that is loaded only once.
+ */
+public class BatchRunner {
+
+    private QueryExecutor executor;
+
+    // statistics of the last run
+    private long queries;
+    private long nanos;
+
+    public BatchRunner(DiGraph diGraph) {
+        this.executor = new QueryExecutor(diGraph);
+    }
+
+    /**
+     * Executes all queries of "in", blank lines and lines starting with "#" are
+     * skipped.
+     *
+     * @param in
+     *            one query per line
+     * @param out
+     *            receives one result per query, should be buffered
+     * @return the number of executed queries
+     * @throws IOException
+     *             on read or write errors
+     */
+    public long run(BufferedReader in, Writer out) throws IOException {
+        long start = System.nanoTime();
+        queries = 0;
+
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+
+            out.write(executor.execute(line));
+            out.write('\n');
+            queries++;
+        }
+
+        out.flush();
+        nanos = System.nanoTime() - start;
+
+        return queries;
+    }
+
+    /**
+     * @return the throughput of the last run, e.g. "1000000 queries in 1.234s
+     *         (810372 queries/s)"
+     */
+    public String getStatistics() {
+        double seconds = nanos / 1e9;
+        double throughput = seconds > 0 ? queries / seconds : 0;
+
+        return String.format("%d queries in %.3fs (%.0f queries/s)", queries, seconds, throughput);
+    }
+
+}
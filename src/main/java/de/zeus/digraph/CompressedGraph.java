@@ -0,0 +1,315 @@
+package de.zeus.digraph;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Read only, compressed adjacency of a graph for deployments with small heaps.
+ *
+ * The targets of each node are sorted and delta encoded as varints: the first
+ * as zigzag encoded difference to the node itself, every further one as gap to
+ * its predecessor, so local edges take a single byte. Latencies are bit packed
+ * with the minimum width needed for the largest latency. Edges are decoded with
+ * an allocation free {@link Cursor}.
+ *
+ * Node names are kept in a plain array, looked up by binary search.
+ */
+public class CompressedGraph {
+
+    private String[] names;
+    private int[] byName; // node ids sorted by name
+
+    private int[] byteOffsets; // targets of v: bytes [byteOffsets[v], byteOffsets[v + 1])
+    private byte[] targets;
+
+    private int[] edgeOffsets; // latencies of v: [edgeOffsets[v], edgeOffsets[v + 1])
+    private long[] latencies;
+    private int width;
+    private long mask;
+
+    public CompressedGraph(DiGraph diGraph) {
+        this(new IndexedGraph(diGraph));
+    }
+
+    public CompressedGraph(IndexedGraph graph) {
+        int n = graph.size();
+        int m = graph.edgeCount();
+
+        names = new String[n];
+        Integer[] sorted = new Integer[n];
+        for (int v = 0; v < n; v++) {
+            names[v] = graph.getName(v);
+            sorted[v] = v;
+        }
+        Arrays.sort(sorted, Comparator.comparing(v -> names[v]));
+        byName = Arrays.stream(sorted).mapToInt(Integer::intValue).toArray();
+
+        // targets, IndexedGraph keeps them sorted
+        byte[] buffer = new byte[Math.max(16, m * 2)];
+        int size = 0;
+        byteOffsets = new int[n + 1];
+        edgeOffsets = new int[n + 1];
+        int maxLatency = 0;
+
+        for (int v = 0; v < n; v++) {
+            int previous = v;
+            boolean first = true;
+
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                int target = graph.target(e);
+                int delta = first ? zigzag(target - v) : target - previous;
+                first = false;
+                previous = target;
+
+                if (size + 5 > buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                size = writeVarint(buffer, size, delta);
+
+                maxLatency = Math.max(maxLatency, graph.latency(e));
+            }
+
+            byteOffsets[v + 1] = size;
+            edgeOffsets[v + 1] = graph.endEdge(v);
+        }
+        targets = Arrays.copyOf(buffer, size);
+
+        // latencies
+        width = Math.max(1, 32 - Integer.numberOfLeadingZeros(maxLatency));
+        mask = (1L << width) - 1;
+        latencies = new long[(int) (((long) m * width + 63) / 64)];
+        for (int e = 0; e < m; e++) {
+            long bit = (long) e * width;
+            int word = (int) (bit >>> 6);
+            int offset = (int) (bit & 63);
+            long value = graph.latency(e);
+
+            latencies[word] |= value << offset;
+            if (offset + width > 64) {
+                latencies[word + 1] |= value >>> (64 - offset);
+            }
+        }
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int writeVarint(byte[] buffer, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * @return the latency of edge e
+     */
+    private int latency(int e) {
+        long bit = (long) e * width;
+        int word = (int) (bit >>> 6);
+        int offset = (int) (bit & 63);
+
+        long value = latencies[word] >>> offset;
+        if (offset + width > 64) {
+            value |= latencies[word + 1] << (64 - offset);
+        }
+
+        return (int) (value & mask);
+    }
+
+    /**
+     * @return the number of nodes
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @return the number of edges
+     */
+    public int edgeCount() {
+        return edgeOffsets[names.length];
+    }
+
+    /**
+     * @return the id of the node or -1 if unknown
+     */
+    public int getId(String name) {
+        int low = 0;
+        int high = byName.length - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = names[byName[mid]].compareTo(name);
+
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return byName[mid];
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the name of node v
+     */
+    public String getName(int v) {
+        return names[v];
+    }
+
+    /**
+     * @return the number of outgoing edges of v
+     */
+    public int degree(int v) {
+        return edgeOffsets[v + 1] - edgeOffsets[v];
+    }
+
+    /**
+     * @return a cursor over the edges of no node, see {@link Cursor#reset(int)}
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * @return the bytes used by the adjacency: targets, latencies and offsets,
+     *         excluding the names
+     */
+    public long getAdjacencyBytes() {
+        return targets.length + (long) latencies.length * Long.BYTES
+                + (long) (byteOffsets.length + edgeOffsets.length) * Integer.BYTES;
+    }
+
+    /**
+     * Finds the shortest latency with Dijkstra on the compressed adjacency, same
+     * semantics as {@link DiGraph#getShortestLatency(String, String)}.
+     *
+     * @return -1 if no such trace exists
+     */
+    public int getShortestLatency(String from, String to) {
+        int s = getId(from);
+        int t = getId(to);
+
+        if (s == -1 || t == -1) {
+            return -1;
+        }
+
+        int[] dist = new int[names.length];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        MinHeap heap = new MinHeap();
+        Cursor cursor = new Cursor();
+        long best = Long.MAX_VALUE;
+
+        dist[s] = 0;
+        heap.push(0, s);
+
+        while (heap.isEmpty() == false) {
+            long entry = heap.poll();
+            int u = MinHeap.node(entry);
+            long d = MinHeap.key(entry);
+
+            if (d > dist[u]) { // stale entry
+                continue;
+            }
+            if (d >= best) { // nothing shorter left
+                break;
+            }
+            if (u == t && s != t) {
+                best = d;
+                break;
+            }
+
+            cursor.reset(u);
+            while (cursor.next()) {
+                int v = cursor.target();
+                long alt = d + cursor.latency();
+
+                if (v == t && s == t) { // cycle back to the start
+                    best = Math.min(best, alt);
+                } else if (alt < dist[v]) {
+                    dist[v] = (int) alt;
+                    heap.push(alt, v);
+                }
+            }
+        }
+
+        return best >= Integer.MAX_VALUE ? -1 : (int) best;
+    }
+
+    /**
+     * Decodes the edges of one node, reusable across nodes.
+     */
+    public class Cursor {
+
+        private int position;
+        private int end;
+        private int edge;
+        private int target;
+        private boolean first;
+
+        private Cursor() {
+        }
+
+        /**
+         * Positions the cursor before the first edge of v.
+         */
+        public void reset(int v) {
+            position = byteOffsets[v];
+            end = byteOffsets[v + 1];
+            edge = edgeOffsets[v] - 1;
+            target = v;
+            first = true;
+        }
+
+        /**
+         * Advances to the next edge.
+         *
+         * @return false if there are no more edges
+         */
+        public boolean next() {
+            if (position >= end) {
+                return false;
+            }
+
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = targets[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            target = first ? target + unzigzag(value) : target + value;
+            first = false;
+            edge++;
+            return true;
+        }
+
+        /**
+         * @return the target node of the current edge
+         */
+        public int target() {
+            return target;
+        }
+
+        /**
+         * @return the latency of the current edge
+         */
+        public int latency() {
+            return CompressedGraph.this.latency(edge);
+        }
+    }
+
+}
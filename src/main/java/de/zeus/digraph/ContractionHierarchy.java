@@ -0,0 +1,521 @@
+package de.zeus.digraph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Contraction hierarchy for fast point to point shortest latency queries.
+ *
+ * Preprocessing orders the nodes by nested dissection, as customizable
+ * contraction hierarchies do: small separators split the graph recursively and
+ * get the highest ranks. The nodes are contracted in that order, all remaining
+ * neighbors of a contracted node are connected with shortcuts. No witness search
+ * is done, so the shortcuts do not depend on the latencies: after
+ * {@link Edge#setLatency(int)} a {@link #customize()} re-weights all shortcuts
+ * bottom up in O(sum of squared upward degrees), keeping the order.
+ *
+ * The higher neighbors of a node are its ancestors in the elimination tree,
+ * where the parent of a node is its lowest ranked higher neighbor. A query
+ * relaxes the upward arcs along the tree paths from "from" and "to" to the root,
+ * without a priority queue, and meets at their common ancestors.
+ *
+ * Queries share search state and are serialized.
+ */
+public class ContractionHierarchy {
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private IndexedGraph graph;
+    private int[] rank;
+    private int[] parent; // in the elimination tree, -1 for roots
+
+    // upward arcs of v: [upOffsets[v], upOffsets[v + 1]), sorted by target
+    private int[] upOffsets;
+    private int[] upTargets;
+    private int[] forward; // latency v -> target
+    private int[] backward; // latency target -> v
+
+    // search state
+    private int[] forwardDist;
+    private int[] backwardDist;
+
+    private long preprocessingNanos;
+    private long customizationNanos;
+
+    public ContractionHierarchy(DiGraph diGraph) {
+        this(new IndexedGraph(diGraph));
+    }
+
+    public ContractionHierarchy(IndexedGraph graph) {
+        long start = System.nanoTime();
+        this.graph = graph;
+
+        rank = dissect();
+        contract();
+
+        int n = graph.size();
+        forwardDist = new int[n];
+        backwardDist = new int[n];
+        Arrays.fill(forwardDist, INFINITY);
+        Arrays.fill(backwardDist, INFINITY);
+
+        preprocessingNanos = System.nanoTime() - start;
+        weigh();
+    }
+
+    /**
+     * Nested dissection order: the nodes of one BFS level separate the levels
+     * below from the levels above. The separating nodes get the highest ranks of
+     * their part, then both sides are ordered the same way. Parts are kept on a
+     * stack instead of recursing.
+     *
+     * @return the rank per node
+     */
+    private int[] dissect() {
+        int n = graph.size();
+
+        // undirected adjacency
+        int[] offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] = offsets[v] + (graph.endEdge(v) - graph.firstEdge(v))
+                    + (graph.endInEdge(v) - graph.firstInEdge(v));
+        }
+        int[] adjacent = new int[offsets[n]];
+        for (int v = 0; v < n; v++) {
+            int i = offsets[v];
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                adjacent[i++] = graph.target(e);
+            }
+            for (int j = graph.firstInEdge(v); j < graph.endInEdge(v); j++) {
+                adjacent[i++] = graph.source(j);
+            }
+        }
+
+        Dissection dissection = new Dissection(offsets, adjacent);
+        int[] ranks = new int[n];
+        int next = n; // ranks are handed out from the top
+
+        Deque<int[]> stack = new ArrayDeque<>();
+        int[] all = new int[n];
+        for (int v = 0; v < n; v++) {
+            all[v] = v;
+        }
+        stack.push(all);
+
+        while (stack.isEmpty() == false) {
+            int[] nodes = stack.pop();
+            dissection.enter(nodes);
+
+            if (nodes.length <= 2) {
+                for (int v : nodes) {
+                    ranks[v] = --next;
+                }
+                continue;
+            }
+
+            int reached = dissection.bfs(nodes, nodes[0]);
+            if (reached < nodes.length) { // split off a connected component
+                stack.push(Arrays.stream(nodes).filter(v -> dissection.level[v] == -1).toArray());
+                stack.push(Arrays.copyOf(dissection.queue, reached));
+                continue;
+            }
+
+            // levels from the last node reached, roughly one end of the part
+            dissection.bfs(nodes, dissection.queue[reached - 1]);
+            int levels = dissection.level[dissection.queue[reached - 1]] + 1;
+
+            if (levels < 3) { // no level lies between two others
+                for (int v : nodes) {
+                    ranks[v] = --next;
+                }
+                continue;
+            }
+
+            int separator = dissection.separatorLevel(nodes, levels);
+
+            // nodes of the separator level without a neighbor above it do not separate
+            List<Integer> lower = new ArrayList<>();
+            List<Integer> upper = new ArrayList<>();
+            for (int v : nodes) {
+                int l = dissection.level[v];
+                if (l < separator) {
+                    lower.add(v);
+                } else if (l > separator) {
+                    upper.add(v);
+                } else if (dissection.hasNeighborAt(v, separator + 1)) {
+                    ranks[v] = --next;
+                } else {
+                    lower.add(v);
+                }
+            }
+
+            stack.push(lower.stream().mapToInt(Integer::intValue).toArray());
+            stack.push(upper.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        return ranks;
+    }
+
+    /**
+     * Creates the shortcuts by contracting the nodes in rank order.
+     */
+    private void contract() {
+        int n = graph.size();
+
+        // undirected neighborhoods, extended by the shortcuts while contracting
+        List<Set<Integer>> neighbors = new ArrayList<>(n);
+        for (int v = 0; v < n; v++) {
+            neighbors.add(new HashSet<>());
+        }
+        for (int v = 0; v < n; v++) {
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                neighbors.get(v).add(graph.target(e));
+                neighbors.get(graph.target(e)).add(v);
+            }
+        }
+
+        int[] order = new int[n];
+        for (int v = 0; v < n; v++) {
+            order[rank[v]] = v;
+        }
+
+        int[][] up = new int[n][];
+        parent = new int[n];
+
+        for (int v : order) {
+            up[v] = neighbors.get(v).stream().mapToInt(Integer::intValue).sorted().toArray();
+
+            // remove v and connect its remaining neighbors pairwise
+            parent[v] = -1;
+            for (int u : up[v]) {
+                neighbors.get(u).remove(v);
+                if (parent[v] == -1 || rank[u] < rank[parent[v]]) {
+                    parent[v] = u;
+                }
+            }
+            for (int u : up[v]) {
+                for (int w : up[v]) {
+                    if (u != w) {
+                        neighbors.get(u).add(w);
+                    }
+                }
+            }
+            neighbors.set(v, null);
+        }
+
+        upOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            upOffsets[v + 1] = upOffsets[v] + up[v].length;
+        }
+        upTargets = new int[upOffsets[n]];
+        for (int v = 0; v < n; v++) {
+            System.arraycopy(up[v], 0, upTargets, upOffsets[v], up[v].length);
+        }
+
+        forward = new int[upTargets.length];
+        backward = new int[upTargets.length];
+    }
+
+    /**
+     * Re-reads the edge latencies and re-weights all shortcuts, e.g. after
+     * {@link Edge#setLatency(int)}. Structural changes require a new hierarchy.
+     */
+    public synchronized void customize() {
+        graph.refreshLatencies();
+        weigh();
+    }
+
+    private void weigh() {
+        long start = System.nanoTime();
+        int n = graph.size();
+
+        Arrays.fill(forward, INFINITY);
+        Arrays.fill(backward, INFINITY);
+
+        for (int v = 0; v < n; v++) {
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                int w = graph.target(e);
+
+                if (rank[v] < rank[w]) {
+                    forward[arc(v, w)] = graph.latency(e);
+                } else {
+                    backward[arc(w, v)] = graph.latency(e);
+                }
+            }
+        }
+
+        // bottom up: every arc between two higher neighbors of v may be shortened via v
+        int[] order = new int[n];
+        for (int v = 0; v < n; v++) {
+            order[rank[v]] = v;
+        }
+
+        for (int v : order) {
+            for (int i = upOffsets[v]; i < upOffsets[v + 1]; i++) {
+                for (int j = upOffsets[v]; j < upOffsets[v + 1]; j++) {
+                    int u = upTargets[i];
+                    int w = upTargets[j];
+
+                    if (rank[u] >= rank[w]) {
+                        continue;
+                    }
+
+                    // u -> v -> w and w -> v -> u
+                    int a = arc(u, w);
+                    forward[a] = min(forward[a], backward[i], forward[j]);
+                    backward[a] = min(backward[a], backward[j], forward[i]);
+                }
+            }
+        }
+
+        customizationNanos = System.nanoTime() - start;
+    }
+
+    private static int min(int current, int first, int second) {
+        if (first == INFINITY || second == INFINITY) {
+            return current;
+        }
+
+        return (int) Math.min(current, Math.min((long) first + second, INFINITY - 1));
+    }
+
+    /**
+     * @return the index of the upward arc from v to w, which must exist
+     */
+    private int arc(int v, int w) {
+        return Arrays.binarySearch(upTargets, upOffsets[v], upOffsets[v + 1], w);
+    }
+
+    /**
+     * Finds the shortest latency, same semantics as
+     * {@link DiGraph#getShortestLatency(String, String)}: for equal nodes the
+     * shortest cycle is returned.
+     *
+     * @return -1 if no such trace exists
+     */
+    public synchronized int getShortestLatency(String from, String to) {
+        int s = graph.getId(from);
+        int t = graph.getId(to);
+
+        if (s == -1 || t == -1) {
+            return -1;
+        }
+
+        long latency = Long.MAX_VALUE;
+
+        if (s != t) {
+            latency = distance(s, t);
+
+        } else { // shortest path to a predecessor, plus the edge back
+            for (int i = graph.firstInEdge(t); i < graph.endInEdge(t); i++) {
+                long d = distance(s, graph.source(i));
+                if (d != Long.MAX_VALUE) {
+                    latency = Math.min(latency, d + graph.latency(graph.inEdge(i)));
+                }
+            }
+        }
+
+        return latency >= INFINITY ? -1 : (int) latency;
+    }
+
+    private long distance(int s, int t) {
+        forwardDist[s] = 0;
+        search(s, forwardDist, forward);
+        backwardDist[t] = 0;
+        search(t, backwardDist, backward);
+
+        // both search spaces only share the common ancestors
+        long best = Long.MAX_VALUE;
+        for (int u = t; u != -1; u = parent[u]) {
+            if (forwardDist[u] != INFINITY && backwardDist[u] != INFINITY) {
+                best = Math.min(best, (long) forwardDist[u] + backwardDist[u]);
+            }
+        }
+
+        for (int u = s; u != -1; u = parent[u]) {
+            forwardDist[u] = INFINITY;
+        }
+        for (int u = t; u != -1; u = parent[u]) {
+            backwardDist[u] = INFINITY;
+        }
+
+        return best;
+    }
+
+    /**
+     * Relaxes the upward arcs along the elimination tree path from source to the
+     * root, which visits the nodes in rank order.
+     */
+    private void search(int source, int[] dist, int[] weights) {
+        for (int u = source; u != -1; u = parent[u]) {
+            int d = dist[u];
+            if (d == INFINITY) {
+                continue;
+            }
+
+            for (int a = upOffsets[u]; a < upOffsets[u + 1]; a++) {
+                if (weights[a] != INFINITY) {
+                    int v = upTargets[a];
+                    dist[v] = (int) Math.min(dist[v], Math.min((long) d + weights[a], INFINITY - 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of shortcuts, i.e. arcs not backed by an edge
+     */
+    public long getShortcutCount() {
+        long arcs = upTargets.length;
+
+        // each edge maps to one direction of one arc, shortcuts are arcs without any
+        boolean[] backed = new boolean[upTargets.length];
+        for (int v = 0; v < graph.size(); v++) {
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                int w = graph.target(e);
+                backed[rank[v] < rank[w] ? arc(v, w) : arc(w, v)] = true;
+            }
+        }
+        for (boolean b : backed) {
+            if (b) {
+                arcs--;
+            }
+        }
+
+        return arcs;
+    }
+
+    /**
+     * @return the average number of nodes a query search visits per direction
+     */
+    public double getSearchSpace() {
+        long depth = 0;
+        for (int v = 0; v < graph.size(); v++) {
+            for (int u = v; u != -1; u = parent[u]) {
+                depth++;
+            }
+        }
+
+        return graph.size() == 0 ? 0 : (double) depth / graph.size();
+    }
+
+    /**
+     * @return the time spent ordering the nodes and creating the shortcuts in ns
+     */
+    public long getPreprocessingNanos() {
+        return preprocessingNanos;
+    }
+
+    /**
+     * @return the time spent by the last customization in ns
+     */
+    public long getCustomizationNanos() {
+        return customizationNanos;
+    }
+
+    /**
+     * Work arrays of the nested dissection, restricted to the current part.
+     */
+    private static class Dissection {
+
+        private int[] offsets;
+        private int[] adjacent;
+        private int[] part; // id of the part a node was last in
+        private int[] level; // BFS level, -1 if not reached
+        private int[] queue;
+        private int id;
+
+        Dissection(int[] offsets, int[] adjacent) {
+            int n = offsets.length - 1;
+            this.offsets = offsets;
+            this.adjacent = adjacent;
+            part = new int[n];
+            level = new int[n];
+            queue = new int[n];
+        }
+
+        void enter(int[] nodes) {
+            id++;
+            for (int v : nodes) {
+                part[v] = id;
+            }
+        }
+
+        /**
+         * BFS inside the current part, sets the levels.
+         *
+         * @return the number of reached nodes, in BFS order in queue
+         */
+        int bfs(int[] nodes, int root) {
+            for (int v : nodes) {
+                level[v] = -1;
+            }
+
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = root;
+            level[root] = 0;
+
+            while (head < tail) {
+                int v = queue[head++];
+                for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                    int w = adjacent[i];
+                    if (part[w] == id && level[w] == -1) {
+                        level[w] = level[v] + 1;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+
+            return tail;
+        }
+
+        /**
+         * Picks the smallest level that leaves at least a quarter of the other
+         * nodes on each side, else the median level.
+         */
+        int separatorLevel(int[] nodes, int levels) {
+            int[] sizes = new int[levels];
+            for (int v : nodes) {
+                sizes[level[v]]++;
+            }
+
+            int best = -1;
+            int median = -1;
+            int below = sizes[0];
+            for (int l = 1; l < levels - 1; l++) {
+                int above = nodes.length - below - sizes[l];
+                int others = nodes.length - sizes[l];
+
+                if (Math.min(below, above) >= others / 4 && (best == -1 || sizes[l] < sizes[best])) {
+                    best = l;
+                }
+                if (median == -1 && below + sizes[l] >= nodes.length / 2) {
+                    median = l;
+                }
+                below += sizes[l];
+            }
+
+            if (best != -1) {
+                return best;
+            }
+            return median == -1 ? levels - 2 : median;
+        }
+
+        boolean hasNeighborAt(int v, int l) {
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                int w = adjacent[i];
+                if (part[w] == id && level[w] == l) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,242 @@
+package de.zeus.digraph;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * Worst case (longest latency) analysis of a fan-out call graph.
+ *
+ * Nodes are processed once in topological order of the strongly connected
+ * components, so the analysis runs in O(V+E). On acyclic regions the longest
+ * latency path and the slack of every node are computed, where the slack is
+ * the latency a node could add without extending the critical path. Nodes in a
+ * cycle, and every node reachable from one, have no bounded worst case latency:
+ * they are blocked and the first such cycle is reported.
+ */
+public class CriticalPath {
+
+    private IndexedGraph graph;
+    private int[] latencies; // per edge, read once so the graph may change meanwhile
+
+    private boolean[] considered; // reachable from the root
+    private boolean[] blocked; // in or behind a cycle
+    private long[] earliest; // longest latency from a start node
+    private long[] tail; // longest latency to an end node
+    private int[] predecessor;
+
+    private long latency = -1;
+    private int end = -1;
+    private Trace cycle;
+
+    /**
+     * Analyzes the whole graph, every node without incoming edges is a start node.
+     */
+    public CriticalPath(IndexedGraph graph) {
+        this(graph, null);
+    }
+
+    /**
+     * Analyzes the nodes reachable from root.
+     *
+     * @param root
+     *            e.g. "A", or null for the whole graph
+     */
+    public CriticalPath(IndexedGraph graph, String root) {
+        this(new StronglyConnectedComponents(graph), latencies(graph), root);
+    }
+
+    /**
+     * Analyzes the nodes reachable from root with the given latencies, e.g. from
+     * {@link IndexedGraph#readLatencies()}.
+     *
+     * @param scc
+     *            the components of the graph, which may be shared
+     * @param latencies
+     *            latency per edge index
+     */
+    CriticalPath(StronglyConnectedComponents scc, int[] latencies, String root) {
+        this.graph = scc.getGraph();
+        this.latencies = latencies;
+
+        int n = graph.size();
+        considered = new boolean[n];
+        blocked = new boolean[n];
+        earliest = new long[n];
+        tail = new long[n];
+        predecessor = new int[n];
+        Arrays.fill(predecessor, -1);
+
+        int[] order = topologicalOrder(scc);
+
+        if (root == null) {
+            Arrays.fill(considered, true);
+        } else if (graph.getId(root) != -1) {
+            considered[graph.getId(root)] = true;
+        }
+
+        // forward pass, longest latency to each node
+        for (int v : order) {
+            if (considered[v] == false) {
+                continue;
+            }
+
+            if (scc.isCyclic(scc.component(v))) {
+                if (cycle == null) {
+                    cycle = findCycle(scc, v);
+                }
+                blocked[v] = true;
+            }
+
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                int w = graph.target(e);
+                long alt = earliest[v] + latencies[e];
+
+                if (blocked[v]) {
+                    blocked[w] = true;
+                } else if (considered[w] == false || alt > earliest[w]) {
+                    earliest[w] = alt;
+                    predecessor[w] = v;
+                }
+                considered[w] = true;
+            }
+
+            if (blocked[v] == false && earliest[v] > latency) {
+                latency = earliest[v];
+                end = v;
+            }
+        }
+
+        // backward pass, longest latency from each node
+        for (int i = n - 1; i >= 0; i--) {
+            int v = order[i];
+            if (considered[v] == false || blocked[v]) {
+                continue;
+            }
+
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                int w = graph.target(e);
+                if (blocked[w] == false) {
+                    tail[v] = Math.max(tail[v], latencies[e] + tail[w]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return all nodes, sorted by their component in topological order
+     */
+    private static int[] latencies(IndexedGraph graph) {
+        int[] latencies = new int[graph.edgeCount()];
+        for (int e = 0; e < latencies.length; e++) {
+            latencies[e] = graph.latency(e);
+        }
+        return latencies;
+    }
+
+    private static int[] topologicalOrder(StronglyConnectedComponents scc) {
+        int n = scc.getGraph().size();
+
+        int[] start = new int[scc.count() + 1];
+        for (int v = 0; v < n; v++) {
+            start[scc.component(v) + 1]++;
+        }
+        for (int c = 0; c < scc.count(); c++) {
+            start[c + 1] += start[c];
+        }
+
+        int[] order = new int[n];
+        for (int v = 0; v < n; v++) {
+            order[start[scc.component(v)]++] = v;
+        }
+
+        return order;
+    }
+
+    /**
+     * Follows edges inside the component of v until a node repeats.
+     */
+    private Trace findCycle(StronglyConnectedComponents scc, int v) {
+        int c = scc.component(v);
+        int[] position = new int[graph.size()];
+        Arrays.fill(position, -1);
+        LinkedList<String> walk = new LinkedList<>();
+
+        while (position[v] == -1) {
+            position[v] = walk.size();
+            walk.add(graph.getName(v));
+
+            // every node of a cyclic component has an edge inside the component
+            int next = -1;
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v) && next == -1; e++) {
+                if (scc.component(graph.target(e)) == c) {
+                    next = graph.target(e);
+                }
+            }
+            v = next;
+        }
+
+        LinkedList<String> nodes = new LinkedList<>(walk.subList(position[v], walk.size()));
+        nodes.add(graph.getName(v));
+        return new Trace(nodes);
+    }
+
+    /**
+     * @return the latency of the critical path or -1 if no node is analyzed
+     */
+    public long getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return the critical path e.g. "A-C-D-E", or null if it is a single node or
+     *         nothing is analyzed
+     */
+    public Trace getPath() {
+        if (end == -1 || predecessor[end] == -1) {
+            return null;
+        }
+
+        LinkedList<String> nodes = new LinkedList<>();
+        for (int v = end; v != -1; v = predecessor[v]) {
+            nodes.addFirst(graph.getName(v));
+        }
+
+        return new Trace(nodes);
+    }
+
+    /**
+     * @return true if a cycle was found
+     */
+    public boolean hasCycle() {
+        return cycle != null;
+    }
+
+    /**
+     * @return the first cycle in topological order e.g. "C-D-C", or null
+     */
+    public Trace getBlockingCycle() {
+        return cycle;
+    }
+
+    /**
+     * @return true if the node is in or behind a cycle
+     */
+    public boolean isBlocked(String name) {
+        int v = graph.getId(name);
+        return v != -1 && blocked[v];
+    }
+
+    /**
+     * @return the latency the node could add without extending the critical path,
+     *         or -1 for unknown, unreachable or blocked nodes
+     */
+    public long getSlack(String name) {
+        int v = graph.getId(name);
+        if (v == -1 || considered[v] == false || blocked[v]) {
+            return -1;
+        }
+
+        return latency - earliest[v] - tail[v];
+    }
+
+}
@@ -1,13 +1,21 @@
 package de.zeus.digraph;
 
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
 
 /**
  * Directed graph containing nodes that contains edges to other nodes.
@@ -17,6 +25,12 @@ public class DiGraph {
     // all nodes of the directed graph
     private Map<String, Node> nodes = new HashMap<>();
 
+    // incremented on every structural change
+    private AtomicLong version = new AtomicLong();
+
+    // indexed snapshot for the array based queries, valid for one version
+    private volatile Snapshot snapshot;
+
     /**
      * Constructs the DiGraph from an input string.
      *
@@ -35,17 +49,38 @@ public class DiGraph {
                 throw new RuntimeException("malformed trace: " + trace);
             }
 
-            Node from = putNode(String.valueOf(trace.charAt(0)));
-            Node to = putNode(String.valueOf(trace.charAt(1)));
-
             // parse latency, can throw NumberFormatException
             int latency = Integer.parseInt(trace.substring(2));
 
             // connect the nodes
-            from.connect(to, latency);
+            connect(String.valueOf(trace.charAt(0)), String.valueOf(trace.charAt(1)), latency);
         }
     }
 
+    /**
+     * Constructs an empty DiGraph, use {@link #connect(String, String, int)} to
+     * add edges. Node names are not limited to a single character.
+     */
+    public DiGraph() {
+    }
+
+    /**
+     * Connects two nodes, creating them if not present.
+     *
+     * @param from
+     *            e.g. "gateway"
+     * @param to
+     *            e.g. "auth"
+     * @param latency
+     *            the average latency in ms
+     * @throws RuntimeException
+     *             on duplicate edges, loops or negative latencies
+     */
+    public void connect(String from, String to, int latency) {
+        putNode(from).connect(putNode(to), latency);
+        version.incrementAndGet();
+    }
+
     /**
      * Returns the nodes of the directed graph
      *
@@ -55,6 +90,20 @@ public class DiGraph {
         return new HashSet<>(nodes.values());
     }
 
+    /**
+     * Returns the edge between two nodes.
+     *
+     * @param from
+     *            e.g. "A"
+     * @param to
+     *            e.g. "B"
+     * @return the edge or null if no such edge exists
+     */
+    public Edge getEdge(String from, String to) {
+        Node f = nodes.get(from);
+        return f == null ? null : f.getEdges().get(to);
+    }
+
     /**
      * Calculates the latency of a trace, where a trace is a list of nodes,
      * separated by "-".
@@ -79,6 +128,39 @@ public class DiGraph {
         return firstNode.getLatency(trace.getSubTrace());
     }
 
+    /**
+     * Calculates the latency distribution of a trace by composing the
+     * distributions of its edges, see {@link Edge#getDistribution()}.
+     *
+     * @param sTrace
+     *            e.g. "A-B-C"
+     * @return the distribution or null if no such trace exists
+     * @throws RuntimeException
+     *             on malformed trace.
+     */
+    public LatencyHistogram getLatencyDistribution(String sTrace) {
+        Trace trace = new Trace(sTrace);
+
+        Node node = nodes.get(trace.getNodes().get(0));
+        if (node == null) {
+            return null;
+        }
+
+        // start with no latency, so edge histograms are never returned themselves
+        LatencyHistogram distribution = LatencyHistogram.of(0);
+        for (String next : trace.getSubTrace().getNodes()) {
+            Edge edge = node.getEdges().get(next);
+            if (edge == null) { // trace does not exist
+                return null;
+            }
+
+            distribution = distribution.convolve(edge.getDistribution());
+            node = edge.getTo();
+        }
+
+        return distribution;
+    }
+
     /**
      * Gets the path of the trace, where e.g. "A-B" would return all paths from A to
      * B where the number of hops do not exceed the max depth.
@@ -93,11 +175,11 @@ public class DiGraph {
         Node f = nodes.get(from);
         Node t = nodes.get(to);
 
-        if (f == null || to == null) {
+        if (f == null || t == null) {
             return null;
         }
 
-        return f.getPaths(t, maxDepth);
+        return f.getPaths(t, maxDepth, mayReach(f, t, edge -> 1, maxDepth));
     }
 
     /**
@@ -113,12 +195,36 @@ public class DiGraph {
      * @return e.g. "A-C-D-B", "A-E-F-B"
      */
     public List<Trace> getPathsExact(String from, String to, int exactHops) {
-        List<Trace> paths = getPaths(from, to, exactHops);
+        if (nodes.get(from) == null || nodes.get(to) == null) { // unknown node(s)
+            return null;
+        }
 
-        // get all paths with the exact hop count
-        return paths.stream().filter(p -> {
-            return p.getNodes().size() == exactHops + 1; // + 1 for the first node
-        }).collect(Collectors.toList());
+        // only explores paths that can still reach "to" with the remaining hops
+        return getSnapshot().exactHopPaths.getPaths(from, to, exactHops);
+    }
+
+    /**
+     * Counts the paths from "from" to "to" with exactly exactHops hops, without
+     * enumerating them.
+     *
+     * @param from
+     *            e.g. "A"
+     * @param to
+     *            e.g. "C"
+     * @param exactHops
+     *            e.g. 4
+     * @return e.g. 3, or -1 for unknown nodes
+     */
+    public long countPathsExact(String from, String to, int exactHops) {
+        Snapshot current = getSnapshot();
+        int f = current.graph.getId(from);
+        int t = current.graph.getId(to);
+
+        if (f == -1 || t == -1) {
+            return -1;
+        }
+
+        return current.exactHopPaths.count(f, t, exactHops);
     }
 
     /**
@@ -141,7 +247,8 @@ public class DiGraph {
             return null;
         }
 
-        return f.getPathsMaxLatency(t, maxLatency);
+        // paths must stay below maxLatency
+        return f.getPathsMaxLatency(t, maxLatency, mayReach(f, t, Edge::getLatency, maxLatency - 1));
     }
 
     /**
@@ -179,6 +286,11 @@ public class DiGraph {
                 return unvisited.contains(e.getKey());
             }).min(Comparator.comparing(Entry::getValue)).get();
 
+            // remaining nodes are unreachable
+            if (minDistance.getValue() == Integer.MAX_VALUE) {
+                break;
+            }
+
             // remove u from Q
             unvisited.remove(minDistance.getKey());
 
@@ -202,7 +314,7 @@ public class DiGraph {
         if (f.equals(t)) {
 
             // find the edge connected from other nodes
-            return distance.entrySet().stream().mapToInt(e -> {
+            int latency = distance.entrySet().stream().mapToInt(e -> {
                 Edge edge = e.getKey().getEdges().get(to);
 
                 // if not present or not connected
@@ -212,13 +324,102 @@ public class DiGraph {
 
                 // return the latency of the previous path plus the edge latency
                 return e.getValue() + edge.getLatency();
-            }).min().getAsInt(); // find the smallest latency, and return it
+            }).min().getAsInt(); // find the smallest latency
+
+            return latency == Integer.MAX_VALUE ? -1 : latency;
         }
 
         int latency = distance.get(t);
         return latency == Integer.MAX_VALUE ? -1 : latency;
     }
 
+    /**
+     * Analyzes the worst case latency of the nodes reachable from "from".
+     *
+     * @param from
+     *            e.g. "A"
+     * @return the critical path, slack per node and the blocking cycle if any
+     */
+    public CriticalPath getCriticalPath(String from) {
+        Snapshot current = getSnapshot();
+
+        // latencies may have changed since the snapshot, which is shared and not updated
+        return new CriticalPath(current.getComponents(), current.graph.readLatencies(), from);
+    }
+
+    /**
+     * Prunes path searches: only nodes within the budget from "from" that can reach
+     * "to" over the edges within the budget may lie on a path. The search is
+     * bounded like the enumeration itself, so it needs no snapshot and costs no
+     * more than the enumeration.
+     *
+     * @param cost
+     *            the cost of an edge, e.g. 1 per hop
+     * @param budget
+     *            the maximum cost of a path
+     * @return false for nodes which cannot be on a path from "from" to "to"
+     */
+    private static Predicate<Node> mayReach(Node from, Node to, ToIntFunction<Edge> cost, int budget) {
+        Map<Node, Integer> distance = new HashMap<>();
+        Map<Node, List<Node>> sources = new HashMap<>(); // reversed edges within the budget
+        PriorityQueue<Entry<Node, Integer>> queue = new PriorityQueue<>(Entry.comparingByValue());
+
+        distance.put(from, 0);
+        queue.add(new SimpleEntry<>(from, 0));
+        while (queue.isEmpty() == false) {
+            Entry<Node, Integer> next = queue.poll();
+            Node u = next.getKey();
+            if (next.getValue() > distance.get(u)) { // stale entry
+                continue;
+            }
+
+            for (Edge edge : u.getEdges().values()) {
+                long alt = (long) next.getValue() + cost.applyAsInt(edge);
+                if (alt > budget) {
+                    continue;
+                }
+
+                Node v = edge.getTo();
+                sources.computeIfAbsent(v, k -> new ArrayList<>()).add(u);
+
+                Integer current = distance.get(v);
+                if (current == null || alt < current) {
+                    distance.put(v, (int) alt);
+                    queue.add(new SimpleEntry<>(v, (int) alt));
+                }
+            }
+        }
+
+        // nodes reaching "to" over the reversed edges
+        Set<Node> reaching = new HashSet<>();
+        Deque<Node> stack = new ArrayDeque<>();
+        reaching.add(to);
+        stack.push(to);
+        while (stack.isEmpty() == false) {
+            for (Node source : sources.getOrDefault(stack.pop(), Collections.emptyList())) {
+                if (reaching.add(source)) {
+                    stack.push(source);
+                }
+            }
+        }
+
+        return reaching::contains;
+    }
+
+    /**
+     * Returns the indexed snapshot of the graph, built on first use after a
+     * structural change. A snapshot built concurrently with a change may be
+     * stored, but it carries the older version and is rebuilt on the next call.
+     */
+    private Snapshot getSnapshot() {
+        long current = version.get();
+        Snapshot built = snapshot;
+        if (built == null || built.version != current) {
+            built = new Snapshot(new IndexedGraph(this), current);
+            snapshot = built;
+        }
+        return built;
+    }
 
     /**
      * Creates a new node in the node map (if not present).
@@ -238,4 +439,31 @@ public class DiGraph {
         return presentNode;
     }
 
+    /**
+     * The IndexedGraph and the structures built on it, shared by concurrent
+     * queries and never changed.
+     */
+    private static class Snapshot {
+
+        private IndexedGraph graph;
+        private long version;
+        private ExactHopPaths exactHopPaths;
+        private volatile StronglyConnectedComponents components; // built on first use
+
+        Snapshot(IndexedGraph graph, long version) {
+            this.graph = graph;
+            this.version = version;
+            this.exactHopPaths = new ExactHopPaths(graph);
+        }
+
+        StronglyConnectedComponents getComponents() {
+            StronglyConnectedComponents current = components;
+            if (current == null) {
+                current = new StronglyConnectedComponents(graph);
+                components = current;
+            }
+            return current;
+        }
+    }
+
 }
\ No newline at end of file
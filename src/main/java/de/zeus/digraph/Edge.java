@@ -1,7 +1,11 @@
 package de.zeus.digraph;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  * An Edge links two nodes from "from" to "to" and carries an average latency.
+ * Optionally it records a histogram of observed latencies.
  *
  * An Edge is unique based on the two immutable nodes, the latency can change.
  */
@@ -9,7 +13,23 @@ public class Edge {
 
     private Node from;
     private Node to;
-    private int latency;
+    // volatile, may be updated by a background thread, see LatencyIngestor
+    private volatile int latency;
+
+    // created on the first recorded observation
+    private LatencyHistogram histogram;
+
+    // created on the first added listener
+    private volatile List<LatencyListener> listeners;
+
+    /**
+     * Notified after the latency of an edge was set.
+     */
+    public interface LatencyListener {
+
+        void latencyChanged(Edge edge);
+
+    }
 
     public Edge(Node left, Node right, int latency) {
         // null nodes
@@ -60,6 +80,63 @@ public class Edge {
      */
     public void setLatency(int latency) {
         this.latency = latency;
+
+        List<LatencyListener> current = listeners;
+        if (current != null) {
+            for (LatencyListener listener : current) {
+                listener.latencyChanged(this);
+            }
+        }
+    }
+
+    /**
+     * Registers a listener for latency changes, e.g. to invalidate a cache.
+     */
+    public synchronized void addListener(LatencyListener listener) {
+        if (listeners == null) {
+            listeners = new CopyOnWriteArrayList<>();
+        }
+
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addListener(LatencyListener)}.
+     */
+    public synchronized void removeListener(LatencyListener listener) {
+        if (listeners != null) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Records an observed latency in the histogram of this edge, the average
+     * latency is not changed.
+     *
+     * @param latency
+     *            the observed latency
+     */
+    public void record(int latency) {
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+        }
+
+        histogram.record(latency);
+    }
+
+    /**
+     * @return the histogram of recorded latencies, or null if nothing was recorded
+     */
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * @return the histogram of recorded latencies, or a single observation of the
+     *         average latency if nothing was recorded
+     */
+    public LatencyHistogram getDistribution() {
+        return histogram == null ? LatencyHistogram.of(latency) : histogram;
     }
 
     @Override
@@ -0,0 +1,166 @@
+package de.zeus.digraph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streams edge lists from and to files, e.g. generated by
+ * {@link TopologyGenerator}.
+ *
+ * The text format has one edge per line: "from to latency", with nodes as
+ * numeric ids. The binary format starts with the magic number 0x45444745
+ * ("EDGE") followed by three big endian ints per edge.
+ */
+public class EdgeListFile {
+
+    public static final int MAGIC = 0x45444745;
+
+    private EdgeListFile() {
+    }
+
+    /**
+     * Opens a file for writing, edges are written as they are received.
+     */
+    public static Output open(Path path, boolean binary) throws IOException {
+        return binary ? new BinaryOutput(path) : new TextOutput(path);
+    }
+
+    /**
+     * Reads all edges of a file, the format is detected by the magic number.
+     *
+     * @return the number of edges
+     * @throws IOException
+     *             on read errors or malformed lines
+     */
+    public static long read(Path path, TopologyGenerator.EdgeSink sink) throws IOException {
+        boolean binary;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            binary = in.readInt() == MAGIC;
+        } catch (EOFException e) {
+            binary = false;
+        }
+
+        return binary ? readBinary(path, sink) : readText(path, sink);
+    }
+
+    /**
+     * @return a DiGraph of the edges of the file, nodes named by id
+     */
+    public static DiGraph toDiGraph(Path path) throws IOException {
+        DiGraph diGraph = new DiGraph();
+        read(path, (from, to, latency) -> diGraph.connect(String.valueOf(from), String.valueOf(to), latency));
+        return diGraph;
+    }
+
+    private static long readBinary(Path path, TopologyGenerator.EdgeSink sink) throws IOException {
+        long edges = 0;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            in.readInt(); // magic
+
+            while (true) {
+                int from;
+                try {
+                    from = in.readInt();
+                } catch (EOFException e) {
+                    return edges;
+                }
+
+                sink.edge(from, in.readInt(), in.readInt());
+                edges++;
+            }
+        }
+    }
+
+    private static long readText(Path path, TopologyGenerator.EdgeSink sink) throws IOException {
+        long edges = 0;
+
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length != 3) {
+                    throw new IOException("malformed edge: " + line);
+                }
+
+                try {
+                    sink.edge(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]), Integer.parseInt(fields[2]));
+                } catch (NumberFormatException e) {
+                    throw new IOException("malformed edge: " + line, e);
+                }
+                edges++;
+            }
+        }
+
+        return edges;
+    }
+
+    /**
+     * An open edge list file.
+     */
+    public interface Output extends TopologyGenerator.EdgeSink, Closeable {
+    }
+
+    private static class TextOutput implements Output {
+
+        private Writer out;
+
+        TextOutput(Path path) throws IOException {
+            out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.UTF_8), 1 << 16);
+        }
+
+        @Override
+        public void edge(int from, int to, int latency) throws IOException {
+            out.write(Integer.toString(from));
+            out.write(' ');
+            out.write(Integer.toString(to));
+            out.write(' ');
+            out.write(Integer.toString(latency));
+            out.write('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    private static class BinaryOutput implements Output {
+
+        private DataOutputStream out;
+
+        BinaryOutput(Path path) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+            out.writeInt(MAGIC);
+        }
+
+        @Override
+        public void edge(int from, int to, int latency) throws IOException {
+            out.writeInt(from);
+            out.writeInt(to);
+            out.writeInt(latency);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+}
@@ -0,0 +1,266 @@
+package de.zeus.digraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Enumerates and counts the paths with an exact number of hops.
+ *
+ * Before enumerating from "from" to "to", the set of nodes that reach "to" in
+ * exactly h hops is computed for every h up to the hop count, one BitSet per
+ * distance. The depth first enumeration only descends into a node if it can
+ * still reach "to" with the remaining hops, so no dead end is explored and no
+ * shorter path is generated. Paths are reported as node id arrays through a
+ * {@link PathVisitor}, without intermediate Trace objects.
+ *
+ * Counting does not enumerate at all: the number of walks from "from" over
+ * half of the hops and into "to" over the other half are computed separately
+ * and met in the middle. The walk counts are kept in hash maps that grow with
+ * the frontiers, so a count needs no memory in proportion to the graph.
+ */
+public class ExactHopPaths {
+
+    /**
+     * Receives the enumerated paths.
+     */
+    public interface PathVisitor {
+
+        /**
+         * @param path
+         *            node ids of the path, only valid during the call
+         * @param length
+         *            the number of nodes, i.e. hops + 1
+         */
+        void visit(int[] path, int length);
+
+    }
+
+    private IndexedGraph graph;
+
+    public ExactHopPaths(IndexedGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Enumerates all paths from s to t with exactly the given number of hops.
+     *
+     * @return the number of paths
+     */
+    public long enumerate(int s, int t, int hops, PathVisitor visitor) {
+        if (hops <= 0) {
+            return 0;
+        }
+
+        BitSet[] reach = reaching(t, hops);
+        if (reach[hops].get(s) == false) {
+            return 0;
+        }
+
+        int[] path = new int[hops + 1];
+        int[] next = new int[hops + 1]; // next edge to follow per depth
+        path[0] = s;
+        next[0] = graph.firstEdge(s);
+        int depth = 0;
+        long count = 0;
+
+        while (depth >= 0) {
+            if (depth == hops) {
+                visitor.visit(path, hops + 1);
+                count++;
+                depth--;
+                continue;
+            }
+
+            int v = path[depth];
+            if (next[depth] == graph.endEdge(v)) { // all edges followed
+                depth--;
+                continue;
+            }
+
+            int w = graph.target(next[depth]++);
+            if (reach[hops - depth - 1].get(w)) {
+                path[++depth] = w;
+                next[depth] = graph.firstEdge(w);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @return reach[h] holds the nodes reaching t in exactly h hops
+     */
+    private BitSet[] reaching(int t, int hops) {
+        BitSet[] reach = new BitSet[hops + 1];
+        reach[0] = new BitSet(graph.size());
+        reach[0].set(t);
+
+        for (int h = 1; h <= hops; h++) {
+            reach[h] = new BitSet(graph.size());
+
+            BitSet previous = reach[h - 1];
+            for (int v = previous.nextSetBit(0); v >= 0; v = previous.nextSetBit(v + 1)) {
+                for (int i = graph.firstInEdge(v); i < graph.endInEdge(v); i++) {
+                    reach[h].set(graph.source(i));
+                }
+            }
+        }
+
+        return reach;
+    }
+
+    /**
+     * Counts the paths from s to t with exactly the given number of hops without
+     * enumerating them, in O(hops * (V + E)) worst case. Only nodes within reach
+     * of s or t are visited.
+     *
+     * @throws ArithmeticException
+     *             if the count exceeds a long
+     */
+    public long count(int s, int t, int hops) {
+        if (hops <= 0) {
+            return 0;
+        }
+
+        int half = hops / 2;
+        Walks forward = walks(s, half, true);
+        Walks backward = walks(t, hops - half, false);
+
+        long count = 0;
+        for (int i = 0; i < forward.nodes.length; i++) {
+            int v = forward.nodes[i];
+            if (v != -1) {
+                count = Math.addExact(count, Math.multiplyExact(forward.counts[i], backward.get(v)));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of walks with exactly the given number of hops from
+     *         (forward) or to (backward) the node, per node
+     */
+    private Walks walks(int node, int hops, boolean forward) {
+        Walks current = new Walks();
+        Walks next = new Walks();
+        current.add(node, 1);
+
+        for (int h = 0; h < hops && current.size > 0; h++) {
+            for (int i = 0; i < current.nodes.length; i++) {
+                int v = current.nodes[i];
+                if (v == -1) {
+                    continue;
+                }
+                long walks = current.counts[i];
+
+                if (forward) {
+                    for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                        next.add(graph.target(e), walks);
+                    }
+                } else {
+                    for (int j = graph.firstInEdge(v); j < graph.endInEdge(v); j++) {
+                        next.add(graph.source(j), walks);
+                    }
+                }
+            }
+
+            current.clear();
+            Walks swap = current;
+            current = next;
+            next = swap;
+        }
+
+        return current;
+    }
+
+    /**
+     * Walk counts per node, open addressing with linear probing.
+     */
+    private static class Walks {
+
+        private int[] nodes = new int[16]; // -1 for free slots
+        private long[] counts = new long[16];
+        private int size;
+
+        Walks() {
+            Arrays.fill(nodes, -1);
+        }
+
+        void add(int v, long walks) {
+            int slot = slot(v);
+            counts[slot] = Math.addExact(counts[slot], walks);
+
+            if (nodes[slot] == -1) {
+                nodes[slot] = v;
+                if (++size * 2 > nodes.length) {
+                    grow();
+                }
+            }
+        }
+
+        long get(int v) {
+            int slot = slot(v);
+            return nodes[slot] == -1 ? 0 : counts[slot];
+        }
+
+        void clear() {
+            Arrays.fill(nodes, -1);
+            Arrays.fill(counts, 0);
+            size = 0;
+        }
+
+        private int slot(int v) {
+            int mask = nodes.length - 1;
+            int slot = (v * 0x9E3779B9) & mask;
+            while (nodes[slot] != -1 && nodes[slot] != v) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            int[] oldNodes = nodes;
+            long[] oldCounts = counts;
+            nodes = new int[oldNodes.length * 2];
+            counts = new long[oldNodes.length * 2];
+            Arrays.fill(nodes, -1);
+
+            for (int i = 0; i < oldNodes.length; i++) {
+                if (oldNodes[i] != -1) {
+                    int slot = slot(oldNodes[i]);
+                    nodes[slot] = oldNodes[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the paths as Traces, see {@link DiGraph#getPathsExact}.
+     *
+     * @return e.g. "A-B-C-D-C", "A-D-C-D-C", "A-D-E-B-C", or null for unknown nodes
+     */
+    public List<Trace> getPaths(String from, String to, int hops) {
+        int s = graph.getId(from);
+        int t = graph.getId(to);
+
+        if (s == -1 || t == -1) {
+            return null;
+        }
+
+        List<Trace> paths = new ArrayList<>();
+        enumerate(s, t, hops, (path, length) -> {
+            LinkedList<String> nodes = new LinkedList<>();
+            for (int i = 0; i < length; i++) {
+                nodes.add(graph.getName(path[i]));
+            }
+            paths.add(new Trace(nodes));
+        });
+
+        return paths;
+    }
+
+}
@@ -0,0 +1,422 @@
+package de.zeus.digraph;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Aggregate views of a graph for capacity planning: degree distributions,
+ * betweenness centrality (how many shortest paths pass a node) and the
+ * distribution of shortest latencies over all pairs.
+ *
+ * Centrality and latencies are computed in one pass with Brandes' algorithm: a
+ * Dijkstra per source node, followed by accumulating the pair dependencies in
+ * reverse order of distance. Sources are split across a fork/join pool, every
+ * leaf task accumulates into its own arrays which are merged when joining. For
+ * large graphs only a random sample of sources is used and the centrality is
+ * scaled accordingly.
+ */
+public class GraphAnalytics {
+
+    // sources per leaf task
+    private static final int LEAF_SOURCES = 16;
+
+    private IndexedGraph graph;
+
+    public GraphAnalytics(IndexedGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * @return the number of nodes per fan-out, index is the out degree
+     */
+    public long[] getOutDegreeDistribution() {
+        return degreeDistribution(true);
+    }
+
+    /**
+     * @return the number of nodes per fan-in, index is the in degree
+     */
+    public long[] getInDegreeDistribution() {
+        return degreeDistribution(false);
+    }
+
+    private long[] degreeDistribution(boolean out) {
+        int[] degrees = new int[graph.size()];
+        int max = 0;
+
+        for (int v = 0; v < graph.size(); v++) {
+            degrees[v] = out ? graph.endEdge(v) - graph.firstEdge(v) : graph.endInEdge(v) - graph.firstInEdge(v);
+            max = Math.max(max, degrees[v]);
+        }
+
+        long[] distribution = new long[max + 1];
+        for (int degree : degrees) {
+            distribution[degree]++;
+        }
+
+        return distribution;
+    }
+
+    /**
+     * Exact centrality and latency distribution, using all nodes as sources.
+     */
+    public Result analyze(ForkJoinPool pool) {
+        return analyze(pool, IntStream.range(0, graph.size()).toArray());
+    }
+
+    /**
+     * Approximate centrality and latency distribution from a random sample of
+     * sources.
+     *
+     * @param samples
+     *            number of sources, e.g. 1000
+     * @param seed
+     *            for a reproducible sample
+     */
+    public Result analyze(ForkJoinPool pool, int samples, long seed) {
+        if (samples >= graph.size()) {
+            return analyze(pool);
+        }
+
+        // partial Fisher-Yates shuffle
+        int[] nodes = IntStream.range(0, graph.size()).toArray();
+        Random random = new Random(seed);
+        for (int i = 0; i < samples; i++) {
+            int j = i + random.nextInt(nodes.length - i);
+            int swap = nodes[i];
+            nodes[i] = nodes[j];
+            nodes[j] = swap;
+        }
+
+        return analyze(pool, Arrays.copyOf(nodes, samples));
+    }
+
+    private Result analyze(ForkJoinPool pool, int[] sources) {
+        long start = System.nanoTime();
+        Accumulator accumulator = pool.invoke(new BrandesTask(sources, 0, sources.length));
+
+        // scale sampled centrality to the whole graph
+        if (sources.length > 0 && sources.length < graph.size()) {
+            double scale = (double) graph.size() / sources.length;
+            for (int v = 0; v < graph.size(); v++) {
+                accumulator.betweenness[v] *= scale;
+            }
+        }
+
+        return new Result(accumulator, sources.length, System.nanoTime() - start);
+    }
+
+    /**
+     * Splits the sources until a leaf is small enough to run sequentially.
+     */
+    private class BrandesTask extends RecursiveTask<Accumulator> {
+
+        private static final long serialVersionUID = 1L;
+
+        private int[] sources;
+        private int from;
+        private int to;
+
+        BrandesTask(int[] sources, int from, int to) {
+            this.sources = sources;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            if (to - from <= LEAF_SOURCES) {
+                Accumulator accumulator = new Accumulator(graph.size());
+                Brandes brandes = new Brandes(accumulator);
+                for (int i = from; i < to; i++) {
+                    brandes.run(sources[i]);
+                }
+                return accumulator;
+            }
+
+            int middle = (from + to) >>> 1;
+            BrandesTask left = new BrandesTask(sources, from, middle);
+            left.fork();
+            Accumulator right = new BrandesTask(sources, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    /**
+     * Per task results.
+     */
+    private static class Accumulator {
+
+        private double[] betweenness;
+        private LatencyHistogram latencies = new LatencyHistogram();
+
+        Accumulator(int n) {
+            betweenness = new double[n];
+        }
+
+        Accumulator merge(Accumulator other) {
+            for (int v = 0; v < betweenness.length; v++) {
+                betweenness[v] += other.betweenness[v];
+            }
+            latencies.add(other.latencies);
+            return this;
+        }
+    }
+
+    /**
+     * Single source step of Brandes' algorithm, with work arrays reused across
+     * sources.
+     *
+     * Zero latency edges put a predecessor and its successor at the same distance,
+     * so nodes of equal distance are ordered along those edges before paths are
+     * counted. Shortest paths are counted along the tight edges that lead forward
+     * in this order, which leaves out the edges closing zero latency cycles.
+     */
+    private class Brandes {
+
+        private Accumulator accumulator;
+        private int[] dist;
+        private double[] sigma; // number of shortest paths
+        private double[] delta; // dependency of the source on a node
+        private int[] settled; // nodes in order of distance
+        private int[] position; // index in settled, -1 if not settled
+        private int[] ordered; // reordered group of equal distance
+        private int[] indegree; // zero latency in edges inside the group, -1 once ordered
+        private MinHeap heap = new MinHeap();
+
+        Brandes(Accumulator accumulator) {
+            int n = graph.size();
+            this.accumulator = accumulator;
+            dist = new int[n];
+            Arrays.fill(dist, Integer.MAX_VALUE);
+            sigma = new double[n];
+            delta = new double[n];
+            settled = new int[n];
+            position = new int[n];
+            Arrays.fill(position, -1);
+            ordered = new int[n];
+            indegree = new int[n];
+        }
+
+        void run(int s) {
+            int count = dijkstra(s);
+
+            for (int i = 0, j; i < count; i = j) {
+                j = i + 1;
+                while (j < count && dist[settled[j]] == dist[settled[i]]) {
+                    j++;
+                }
+                if (j - i > 1) {
+                    order(s, i, j);
+                }
+            }
+
+            // count shortest paths, predecessors come first
+            sigma[s] = 1;
+            for (int i = 1; i < count; i++) {
+                int w = settled[i];
+                for (int j = graph.firstInEdge(w); j < graph.endInEdge(w); j++) {
+                    int u = graph.source(j);
+                    if (isTight(u, w, j)) {
+                        sigma[w] += sigma[u];
+                    }
+                }
+            }
+
+            // accumulate dependencies, successors first
+            for (int i = count - 1; i >= 0; i--) {
+                int w = settled[i];
+
+                for (int j = graph.firstInEdge(w); j < graph.endInEdge(w); j++) {
+                    int u = graph.source(j);
+                    if (isTight(u, w, j)) {
+                        delta[u] += sigma[u] / sigma[w] * (1 + delta[w]);
+                    }
+                }
+
+                if (w != s) {
+                    accumulator.betweenness[w] += delta[w];
+                    accumulator.latencies.record(dist[w]);
+                }
+            }
+
+            for (int i = 0; i < count; i++) {
+                int v = settled[i];
+                dist[v] = Integer.MAX_VALUE;
+                sigma[v] = 0;
+                delta[v] = 0;
+                position[v] = -1;
+            }
+        }
+
+        /**
+         * @return the number of settled nodes
+         */
+        private int dijkstra(int s) {
+            int count = 0;
+
+            dist[s] = 0;
+            heap.clear();
+            heap.push(0, s);
+
+            while (heap.isEmpty() == false) {
+                long entry = heap.poll();
+                int u = MinHeap.node(entry);
+                if (MinHeap.key(entry) > dist[u] || position[u] >= 0) { // stale or settled
+                    continue;
+                }
+                position[u] = count;
+                settled[count++] = u;
+
+                for (int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+                    int v = graph.target(e);
+                    long alt = (long) dist[u] + graph.latency(e);
+
+                    if (alt < dist[v]) {
+                        dist[v] = (int) alt;
+                        heap.push(alt, v);
+                    }
+                }
+            }
+
+            return count;
+        }
+
+        /**
+         * @return true if in edge j from u to w lies on a shortest path to w
+         */
+        private boolean isTight(int u, int w, int j) {
+            return position[u] >= 0 && position[u] < position[w]
+                    && (long) dist[u] + graph.latency(graph.inEdge(j)) == dist[w];
+        }
+
+        /**
+         * Orders settled[from, to), nodes of equal distance, topologically along
+         * their zero latency edges. Nodes on zero latency cycles keep the order in
+         * which they were settled.
+         */
+        private void order(int s, int from, int to) {
+            int d = dist[settled[from]];
+
+            for (int i = from; i < to; i++) {
+                int v = settled[i];
+                if (v == s) { // the source stays first
+                    continue;
+                }
+                for (int j = graph.firstInEdge(v); j < graph.endInEdge(v); j++) {
+                    if (dist[graph.source(j)] == d && graph.latency(graph.inEdge(j)) == 0) {
+                        indegree[v]++;
+                    }
+                }
+            }
+
+            int size = from;
+            for (int i = from; i < to; i++) {
+                if (indegree[settled[i]] == 0) {
+                    indegree[settled[i]] = -1;
+                    ordered[size++] = settled[i];
+                }
+            }
+
+            int head = from;
+            int next = from; // next candidate to break a cycle
+            while (size < to) {
+                if (head == size) { // only cycles left
+                    while (indegree[settled[next]] < 0) {
+                        next++;
+                    }
+                    indegree[settled[next]] = -1;
+                    ordered[size++] = settled[next];
+                }
+
+                int u = ordered[head++];
+                for (int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+                    int w = graph.target(e);
+                    if (graph.latency(e) == 0 && dist[w] == d && indegree[w] > 0 && --indegree[w] == 0) {
+                        indegree[w] = -1;
+                        ordered[size++] = w;
+                    }
+                }
+            }
+
+            for (int i = from; i < to; i++) {
+                int v = ordered[i];
+                indegree[v] = 0;
+                settled[i] = v;
+                position[v] = i;
+            }
+        }
+    }
+
+    /**
+     * Centrality and latency distribution of an analysis.
+     */
+    public class Result {
+
+        private double[] betweenness;
+        private LatencyHistogram latencies;
+        private int sources;
+        private long nanos;
+
+        private Result(Accumulator accumulator, int sources, long nanos) {
+            this.betweenness = accumulator.betweenness;
+            this.latencies = accumulator.latencies;
+            this.sources = sources;
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return the number of shortest paths between other nodes passing v,
+         *         estimated when sampled
+         */
+        public double getBetweenness(int v) {
+            return betweenness[v];
+        }
+
+        /**
+         * @return the betweenness of the node, or -1 if unknown
+         */
+        public double getBetweenness(String name) {
+            int v = graph.getId(name);
+            return v == -1 ? -1 : betweenness[v];
+        }
+
+        /**
+         * @return the names of the k nodes with the highest betweenness, highest
+         *         first
+         */
+        public List<String> getHotSpots(int k) {
+            return IntStream.range(0, betweenness.length).boxed()
+                    .sorted(Comparator.comparingDouble((Integer v) -> betweenness[v]).reversed()).limit(k)
+                    .map(graph::getName).collect(Collectors.toList());
+        }
+
+        /**
+         * @return the shortest latencies of all reachable pairs from the sources
+         */
+        public LatencyHistogram getLatencies() {
+            return latencies;
+        }
+
+        /**
+         * @return the number of sources used
+         */
+        public int getSources() {
+            return sources;
+        }
+
+        /**
+         * @return the time spent in ns
+         */
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+}
@@ -0,0 +1,567 @@
+package de.zeus.digraph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+
+/**
+ * Crash safe persistence of a DiGraph and its mutations.
+ *
+ * Every mutation made through the journal is validated and appended to a
+ * write-ahead log, and applied to the graph once the log is forced to disk, so
+ * the graph never holds a mutation the log lost. Concurrent writers share a
+ * single force (group commit): the first waiting writer writes and forces
+ * everything appended so far, the others wait for it. {@link #compact()} writes
+ * a snapshot of the graph and truncates the log.
+ *
+ * If writing or forcing fails, the log is truncated back to its durable size and
+ * the journal fails: the waiting and all later mutations throw an IOException.
+ * Reopening the journal recovers the durable state.
+ *
+ * On open, the snapshot is loaded and the log replayed. A torn record at the
+ * end of the log, i.e. a crash during a write, is detected by its length and
+ * CRC and cut off. Replaying is idempotent, so a crash during compaction is
+ * safe as well.
+ *
+ * Latency updates made directly on the edges, e.g. by
+ * {@link LatencyIngestor#fold()}, are journaled through an
+ * {@link Edge.LatencyListener}. They are applied already, their records become
+ * durable with the next group commit, {@link #sync()} or {@link #close()}, and
+ * the updating thread only waits for a commit once many records are pending.
+ * Nodes must only be connected through the journal.
+ */
+public class GraphJournal implements Closeable {
+
+    public static final String SNAPSHOT = "snapshot";
+    public static final String LOG = "wal";
+
+    private static final byte CONNECT = 1;
+    private static final byte SET_LATENCY = 2;
+
+    // length and CRC of each record
+    private static final int HEADER = 2 * Integer.BYTES;
+
+    // names are stored with an unsigned short length
+    private static final int MAX_NAME = 0xFFFF;
+
+    // pending bytes after which a direct latency update waits for a commit
+    private static final int PENDING_LIMIT = 1 << 16;
+
+    private Path directory;
+    private DiGraph diGraph = new DiGraph();
+    private FileChannel log;
+    private long compactionThreshold;
+
+    // group commit state, guarded by this
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+    private List<Mutation> mutations = new ArrayList<>(); // of the pending records
+    private Set<List<String>> connecting = new HashSet<>(); // pending CONNECTs, from and to
+    private long appended; // sequence number of the last appended record
+    private long durable; // sequence number of the last forced record
+    private boolean flushing;
+    private long logSize; // of the durable records
+    private IOException failure;
+    private boolean applying; // journaled mutations are applied, their records exist
+
+    private Edge.LatencyListener listener = this::latencyChanged;
+
+    /**
+     * Opens or creates a journal without automatic compaction.
+     */
+    public GraphJournal(Path directory) throws IOException {
+        this(directory, Long.MAX_VALUE);
+    }
+
+    /**
+     * Opens or creates a journal and recovers the graph.
+     *
+     * @param directory
+     *            holds the snapshot and the log
+     * @param compactionThreshold
+     *            log size in bytes that triggers a compaction
+     * @throws IOException
+     *             if the files cannot be read, or the snapshot is corrupt
+     */
+    public GraphJournal(Path directory, long compactionThreshold) throws IOException {
+        this(directory, compactionThreshold, UnaryOperator.identity());
+    }
+
+    /**
+     * @param channels
+     *            wraps the log channel, e.g. to inject failures in tests
+     */
+    GraphJournal(Path directory, long compactionThreshold, UnaryOperator<FileChannel> channels) throws IOException {
+        this.directory = directory;
+        this.compactionThreshold = compactionThreshold;
+
+        Files.createDirectories(directory);
+
+        Path snapshot = directory.resolve(SNAPSHOT);
+        if (Files.exists(snapshot)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+            if (replay(buffer) != buffer.limit()) { // snapshots are renamed atomically, never torn
+                throw new IOException("corrupt snapshot: " + snapshot);
+            }
+        }
+
+        log = channels.apply(FileChannel.open(directory.resolve(LOG), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE));
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) log.size());
+        while (buffer.hasRemaining() && log.read(buffer) != -1) {
+            // read all
+        }
+        buffer.flip();
+
+        // cut off a torn tail
+        logSize = replay(buffer);
+        log.truncate(logSize);
+        log.position(logSize);
+        log.force(true);
+        forceDirectory(); // the log may have just been created
+
+        for (Node node : diGraph.getNodes()) {
+            for (Edge edge : node.getEdges().values()) {
+                edge.addListener(listener);
+            }
+        }
+    }
+
+    /**
+     * Forces the directory entries, i.e. created and renamed files.
+     */
+    private void forceDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Applies all complete records.
+     *
+     * @return the number of bytes of complete records
+     */
+    private long replay(ByteBuffer buffer) {
+        while (buffer.remaining() >= HEADER) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int crc = buffer.getInt();
+
+            if (length <= 0 || length > buffer.remaining()) {
+                return start;
+            }
+
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.array(), buffer.position(), length);
+            if ((int) checksum.getValue() != crc) {
+                return start;
+            }
+
+            byte type = buffer.get();
+            String from = readString(buffer);
+            String to = readString(buffer);
+            int latency = buffer.getInt();
+
+            Edge edge = diGraph.getEdge(from, to);
+            if (edge != null) { // idempotent: CONNECT of an existing edge updates it
+                edge.setLatency(latency);
+            } else if (type == CONNECT) {
+                diGraph.connect(from, to, latency);
+            }
+        }
+
+        return buffer.position();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the recovered graph, mutate it only through the journal
+     */
+    public DiGraph getDiGraph() {
+        return diGraph;
+    }
+
+    /**
+     * Connects two nodes, see {@link DiGraph#connect(String, String, int)}, and
+     * returns once the mutation is durable and applied.
+     *
+     * @throws RuntimeException
+     *             on duplicate edges, loops or negative latencies
+     * @throws IOException
+     *             if the journal failed, the mutation is not applied
+     */
+    public void connect(String from, String to, int latency) throws IOException {
+        long sequence;
+        synchronized (this) {
+            if (from.equals(to)) {
+                throw new RuntimeException("Nodes are equal, loop detected");
+            }
+            if (latency < 0) {
+                throw new RuntimeException("Latency is negative");
+            }
+            if (diGraph.getEdge(from, to) != null || connecting.contains(List.of(from, to))) {
+                throw new RuntimeException("Duplicate edge");
+            }
+
+            sequence = append(new Mutation(CONNECT, from, to, latency));
+            connecting.add(List.of(from, to));
+        }
+
+        awaitDurable(sequence);
+    }
+
+    /**
+     * Sets the latency of an existing edge and returns once the mutation is
+     * durable and applied.
+     *
+     * @throws RuntimeException
+     *             if no such edge exists
+     * @throws IOException
+     *             if the journal failed, the mutation is not applied
+     */
+    public void setLatency(String from, String to, int latency) throws IOException {
+        long sequence;
+        synchronized (this) {
+            if (diGraph.getEdge(from, to) == null && connecting.contains(List.of(from, to)) == false) {
+                throw new RuntimeException("no such edge: " + from + to);
+            }
+            if (latency < 0) {
+                throw new RuntimeException("Latency is negative");
+            }
+
+            sequence = append(new Mutation(SET_LATENCY, from, to, latency));
+        }
+
+        awaitDurable(sequence);
+    }
+
+    private long append(Mutation mutation) throws IOException {
+        long sequence = append(mutation.type, mutation.from, mutation.to, mutation.latency);
+        mutations.add(mutation);
+        return sequence;
+    }
+
+    private long append(byte type, String from, String to, int latency) throws IOException {
+        if (failure != null) {
+            throw new IOException("journal failed", failure);
+        }
+
+        pending = encode(pending, type, from, to, latency);
+        return ++appended;
+    }
+
+    /**
+     * Journals a latency set directly on an edge, the edge already holds it.
+     *
+     * @throws UncheckedIOException
+     *             if the journal failed
+     */
+    private void latencyChanged(Edge edge) {
+        long sequence;
+        synchronized (this) {
+            if (applying) {
+                return;
+            }
+
+            try {
+                // the current latency, a concurrent update appends after this record
+                sequence = append(SET_LATENCY, edge.getFrom().getName(), edge.getTo().getName(), edge.getLatency());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            if (pending.position() < PENDING_LIMIT) {
+                return;
+            }
+        }
+
+        try {
+            awaitDurable(sequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns once all appended records are durable, e.g. after latency updates
+     * made directly on the edges.
+     *
+     * @throws IOException
+     *             if the journal failed
+     */
+    public void sync() throws IOException {
+        long sequence;
+        synchronized (this) {
+            sequence = appended;
+        }
+
+        awaitDurable(sequence);
+    }
+
+    /**
+     * Writes a record to the buffer.
+     *
+     * @return the buffer, or a larger copy if it was full
+     * @throws RuntimeException
+     *             if a name exceeds 65535 bytes in UTF-8, the buffer is unchanged
+     */
+    private static ByteBuffer encode(ByteBuffer buffer, byte type, String from, String to, int latency) {
+        byte[] fromBytes = from.getBytes(StandardCharsets.UTF_8);
+        byte[] toBytes = to.getBytes(StandardCharsets.UTF_8);
+        if (fromBytes.length > MAX_NAME || toBytes.length > MAX_NAME) {
+            throw new RuntimeException("Node name exceeds " + MAX_NAME + " bytes");
+        }
+        int length = 1 + 2 + fromBytes.length + 2 + toBytes.length + Integer.BYTES;
+
+        if (buffer.remaining() < HEADER + length) {
+            int capacity = Math.max(buffer.capacity() * 2, buffer.position() + HEADER + length);
+            ByteBuffer larger = ByteBuffer.allocate(capacity);
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+
+        int start = buffer.position();
+        buffer.putInt(length);
+        buffer.putInt(0); // CRC, below
+        buffer.put(type);
+        buffer.putShort((short) fromBytes.length);
+        buffer.put(fromBytes);
+        buffer.putShort((short) toBytes.length);
+        buffer.put(toBytes);
+        buffer.putInt(latency);
+
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), start + HEADER, length);
+        buffer.putInt(start + Integer.BYTES, (int) checksum.getValue());
+
+        return buffer;
+    }
+
+    /**
+     * Waits until the record with the given sequence number is forced, becoming
+     * the writer that forces if nobody else does.
+     */
+    private void awaitDurable(long sequence) throws IOException {
+        while (true) {
+            ByteBuffer batch;
+            List<Mutation> batchMutations;
+            long batchEnd;
+
+            synchronized (this) {
+                while (durable < sequence && flushing && failure == null) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("interrupted while waiting for the log", e);
+                    }
+                }
+                if (durable >= sequence) {
+                    return;
+                }
+                if (failure != null) {
+                    throw new IOException("journal failed", failure);
+                }
+
+                // lead the next group
+                flushing = true;
+                batchEnd = appended;
+                pending.flip();
+                batch = pending;
+                pending = ByteBuffer.allocate(batch.capacity());
+                batchMutations = mutations;
+                mutations = new ArrayList<>();
+            }
+
+            IOException error = null;
+            try {
+                while (batch.hasRemaining()) {
+                    log.write(batch);
+                }
+                log.force(false);
+
+            } catch (IOException e) {
+                error = e;
+            }
+
+            synchronized (this) {
+                flushing = false;
+
+                if (error == null) {
+                    applying = true;
+                    try {
+                        for (Mutation mutation : batchMutations) {
+                            mutation.apply();
+                        }
+                    } finally {
+                        applying = false;
+                    }
+                    durable = batchEnd;
+                    logSize = log.position();
+
+                } else {
+                    fail(error);
+                }
+                notifyAll();
+            }
+
+            if (error != null) {
+                throw new IOException("journal failed", error);
+            }
+
+            if (logSize > compactionThreshold) {
+                compact();
+            }
+        }
+    }
+
+    /**
+     * Cuts a partially written batch off the log and rejects all pending and later
+     * mutations. Called with the lock held.
+     */
+    private void fail(IOException error) {
+        failure = error;
+        pending.clear();
+        mutations.clear();
+        connecting.clear();
+
+        try {
+            log.truncate(logSize);
+            log.position(logSize);
+            log.force(true);
+        } catch (IOException e) {
+            error.addSuppressed(e); // recovery cuts the torn tail off instead
+        }
+    }
+
+    /**
+     * Writes a snapshot of the graph and truncates the log. Mutations are blocked
+     * meanwhile, pending ones are written to the truncated log.
+     */
+    public synchronized void compact() throws IOException {
+        while (flushing) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while waiting for the log", e);
+            }
+        }
+        if (failure != null) {
+            throw new IOException("journal failed", failure);
+        }
+
+        // the graph holds the durable records, and direct latency updates whose
+        // pending records follow in the log
+        ByteBuffer records = ByteBuffer.allocate(1 << 16);
+        for (Node node : diGraph.getNodes()) {
+            for (Edge edge : node.getEdges().values()) {
+                records = encode(records, CONNECT, node.getName(), edge.getTo().getName(), edge.getLatency());
+            }
+        }
+
+        records.flip();
+        Path tmp = directory.resolve(SNAPSHOT + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (records.hasRemaining()) {
+                channel.write(records);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, directory.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+
+        // the rename must be durable before the log it replaces is gone
+        forceDirectory();
+
+        try {
+            log.truncate(0);
+            log.position(0);
+            log.force(true);
+        } catch (IOException e) {
+            failure = e; // snapshot and log overlap, which replays correctly
+            notifyAll();
+            throw e;
+        }
+        logSize = 0;
+    }
+
+    /**
+     * @return the size of the log in bytes
+     */
+    public synchronized long getLogSize() {
+        return logSize;
+    }
+
+    /**
+     * Forces pending records and closes the log, a failed journal is only closed.
+     * Latency updates made directly on the edges are no longer journaled.
+     */
+    @Override
+    public void close() throws IOException {
+        long sequence;
+        synchronized (this) {
+            for (Node node : diGraph.getNodes()) {
+                for (Edge edge : node.getEdges().values()) {
+                    edge.removeListener(listener);
+                }
+            }
+            sequence = failure == null ? appended : durable;
+        }
+
+        try {
+            awaitDurable(sequence);
+        } finally {
+            log.close();
+        }
+    }
+
+    /**
+     * A validated mutation, applied once its record is durable.
+     */
+    private class Mutation {
+
+        private byte type;
+        private String from;
+        private String to;
+        private int latency;
+
+        Mutation(byte type, String from, String to, int latency) {
+            this.type = type;
+            this.from = from;
+            this.to = to;
+            this.latency = latency;
+        }
+
+        void apply() {
+            if (type == CONNECT) {
+                diGraph.connect(from, to, latency);
+                diGraph.getEdge(from, to).addListener(listener);
+                connecting.remove(List.of(from, to));
+            } else {
+                diGraph.getEdge(from, to).setLatency(latency);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+package de.zeus.digraph;
+
+import java.util.Arrays;
+
+/**
+ * Splits an IndexedGraph into k partitions of similar size with few cut
+ * edges, e.g. to distribute work across cores.
+ *
+ * The nodes are first assigned in consecutive blocks of a breadth first order
+ * (ignoring edge directions), which keeps neighborhoods together. Then rounds
+ * of size constrained label propagation move each node to the partition most of
+ * its neighbors are in, as long as that partition stays within the allowed
+ * imbalance.
+ */
+public class GraphPartitioner {
+
+    private static final int ROUNDS = 10;
+    private static final double IMBALANCE = 1.1;
+
+    private IndexedGraph graph;
+    private int k;
+    private int[] partition;
+    private int[] sizes;
+
+    public GraphPartitioner(IndexedGraph graph, int k) {
+        if (k <= 0) {
+            throw new RuntimeException("k must be positive");
+        }
+
+        this.graph = graph;
+        this.k = k;
+
+        assignBlocks();
+        for (int round = 0; round < ROUNDS; round++) {
+            if (propagate() == 0) {
+                break;
+            }
+        }
+    }
+
+    private void assignBlocks() {
+        int n = graph.size();
+        partition = new int[n];
+        sizes = new int[k];
+
+        boolean[] visited = new boolean[n];
+        int[] queue = new int[n];
+        int tail = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (visited[root]) {
+                continue;
+            }
+
+            int head = tail;
+            visited[root] = true;
+            queue[tail++] = root;
+
+            while (head < tail) {
+                int v = queue[head++];
+
+                for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                    int w = graph.target(e);
+                    if (visited[w] == false) {
+                        visited[w] = true;
+                        queue[tail++] = w;
+                    }
+                }
+                for (int i = graph.firstInEdge(v); i < graph.endInEdge(v); i++) {
+                    int w = graph.source(i);
+                    if (visited[w] == false) {
+                        visited[w] = true;
+                        queue[tail++] = w;
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            int p = (int) ((long) i * k / n);
+            partition[queue[i]] = p;
+            sizes[p]++;
+        }
+    }
+
+    /**
+     * @return the number of moved nodes
+     */
+    private int propagate() {
+        int n = graph.size();
+        int capacity = (int) Math.ceil(IMBALANCE * n / k);
+        int[] counts = new int[k];
+        int moved = 0;
+
+        for (int v = 0; v < n; v++) {
+            Arrays.fill(counts, 0);
+
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                counts[partition[graph.target(e)]]++;
+            }
+            for (int i = graph.firstInEdge(v); i < graph.endInEdge(v); i++) {
+                counts[partition[graph.source(i)]]++;
+            }
+
+            int current = partition[v];
+            int best = current;
+            for (int p = 0; p < k; p++) {
+                if (counts[p] > counts[best] && sizes[p] < capacity) {
+                    best = p;
+                }
+            }
+
+            if (best != current) {
+                partition[v] = best;
+                sizes[current]--;
+                sizes[best]++;
+                moved++;
+            }
+        }
+
+        return moved;
+    }
+
+    /**
+     * @return the number of partitions
+     */
+    public int getPartitions() {
+        return k;
+    }
+
+    /**
+     * @return the partition of node v
+     */
+    public int partition(int v) {
+        return partition[v];
+    }
+
+    /**
+     * @return the number of nodes in partition p
+     */
+    public int size(int p) {
+        return sizes[p];
+    }
+
+    /**
+     * @return the number of edges between different partitions
+     */
+    public long getCutEdges() {
+        long cut = 0;
+
+        for (int v = 0; v < graph.size(); v++) {
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                if (partition[v] != partition[graph.target(e)]) {
+                    cut++;
+                }
+            }
+        }
+
+        return cut;
+    }
+
+}
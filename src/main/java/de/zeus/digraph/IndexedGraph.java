@@ -0,0 +1,284 @@
+package de.zeus.digraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, array based snapshot of a DiGraph for index structures and
+ * analysis algorithms.
+ *
+ * Nodes are numbered 0..n-1 in name order when built from a DiGraph, graphs
+ * built with {@link #of(int, int[], int[], int[])} keep the given node numbers.
+ * Outgoing and incoming edges are
+ * stored in compressed sparse row layout, sorted by the id of the adjacent
+ * node. Edge latencies are copied at construction time, use
+ * {@link #refreshLatencies()} to pick up changes made through
+ * {@link Edge#setLatency(int)}. Structural changes require a new snapshot.
+ */
+public class IndexedGraph {
+
+    private String[] names;
+    private Map<String, Integer> ids = new HashMap<>();
+
+    // outgoing edges of v: [outOffsets[v], outOffsets[v + 1])
+    private int[] outOffsets;
+    private int[] targets;
+    private int[] latencies;
+    private Edge[] edges;
+
+    // incoming edges of v: [inOffsets[v], inOffsets[v + 1]), inEdges maps to the
+    // index of the outgoing edge
+    private int[] inOffsets;
+    private int[] sources;
+    private int[] inEdges;
+
+    public IndexedGraph(DiGraph diGraph) {
+        List<Node> nodes = new ArrayList<>(diGraph.getNodes());
+        nodes.sort(Comparator.comparing(Node::getName));
+
+        int n = nodes.size();
+        names = new String[n];
+        for (int v = 0; v < n; v++) {
+            names[v] = nodes.get(v).getName();
+            ids.put(names[v], v);
+        }
+
+        // outgoing edges
+        outOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            outOffsets[v + 1] = outOffsets[v] + nodes.get(v).getEdges().size();
+        }
+
+        int m = outOffsets[n];
+        targets = new int[m];
+        latencies = new int[m];
+        edges = new Edge[m];
+
+        for (int v = 0; v < n; v++) {
+            Edge[] sorted = nodes.get(v).getEdges().values().toArray(new Edge[0]);
+            Arrays.sort(sorted, Comparator.comparingInt(e -> ids.get(e.getTo().getName())));
+
+            int e = outOffsets[v];
+            for (Edge edge : sorted) {
+                targets[e] = ids.get(edge.getTo().getName());
+                latencies[e] = edge.getLatency();
+                edges[e] = edge;
+                e++;
+            }
+        }
+
+        buildIncoming();
+    }
+
+    /**
+     * Builds a graph directly from an edge list, without DiGraph, e.g. for
+     * synthetic graphs too large for the object model. Node v is named
+     * String.valueOf(v), so ids do not follow name order. Duplicate edges and
+     * loops are kept, and {@link #edge(int)} returns null.
+     *
+     * @param n
+     *            number of nodes
+     * @param from
+     *            source of each edge
+     * @param to
+     *            target of each edge
+     * @param latency
+     *            latency of each edge
+     */
+    public static IndexedGraph of(int n, int[] from, int[] to, int[] latency) {
+        return new IndexedGraph(n, from, to, latency);
+    }
+
+    private IndexedGraph(int n, int[] from, int[] to, int[] latency) {
+        names = new String[n];
+        for (int v = 0; v < n; v++) {
+            names[v] = String.valueOf(v);
+            ids.put(names[v], v);
+        }
+
+        int m = from.length;
+        outOffsets = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            outOffsets[from[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            outOffsets[v + 1] += outOffsets[v];
+        }
+
+        // target and latency packed, so sorting the keys sorts the edges by target
+        long[] keys = new long[m];
+        int[] next = Arrays.copyOf(outOffsets, n);
+        for (int e = 0; e < m; e++) {
+            keys[next[from[e]]++] = (long) to[e] << 32 | (latency[e] & 0xFFFFFFFFL);
+        }
+        for (int v = 0; v < n; v++) {
+            Arrays.sort(keys, outOffsets[v], outOffsets[v + 1]);
+        }
+
+        targets = new int[m];
+        latencies = new int[m];
+        edges = new Edge[m];
+        for (int e = 0; e < m; e++) {
+            targets[e] = (int) (keys[e] >>> 32);
+            latencies[e] = (int) keys[e];
+        }
+
+        buildIncoming();
+    }
+
+    /**
+     * Incoming edges, counting sort by target keeps the sources sorted.
+     */
+    private void buildIncoming() {
+        int n = names.length;
+        int m = targets.length;
+
+        inOffsets = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            inOffsets[targets[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+
+        sources = new int[m];
+        inEdges = new int[m];
+        int[] next = Arrays.copyOf(inOffsets, n);
+        for (int v = 0; v < n; v++) {
+            for (int e = outOffsets[v]; e < outOffsets[v + 1]; e++) {
+                int i = next[targets[e]]++;
+                sources[i] = v;
+                inEdges[i] = e;
+            }
+        }
+    }
+
+    /**
+     * Re-reads the latencies of all edges, e.g. after
+     * {@link Edge#setLatency(int)}.
+     */
+    public void refreshLatencies() {
+        for (int e = 0; e < edges.length; e++) {
+            if (edges[e] != null) { // null for graphs built from edge lists
+                latencies[e] = edges[e].getLatency();
+            }
+        }
+    }
+
+    /**
+     * Reads the current latencies of all edges into a new array, without changing
+     * the graph, e.g. for an analysis on a graph shared with other threads.
+     *
+     * @return the latency per edge index
+     */
+    public int[] readLatencies() {
+        int[] current = latencies.clone(); // kept for graphs built from edge lists
+        for (int e = 0; e < edges.length; e++) {
+            if (edges[e] != null) {
+                current[e] = edges[e].getLatency();
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return the number of nodes
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @return the number of edges
+     */
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * @param name
+     *            e.g. "A"
+     * @return the id of the node or -1 if unknown
+     */
+    public int getId(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return the name of the node with the given id
+     */
+    public String getName(int v) {
+        return names[v];
+    }
+
+    /**
+     * @return the index of the first outgoing edge of v
+     */
+    public int firstEdge(int v) {
+        return outOffsets[v];
+    }
+
+    /**
+     * @return the index after the last outgoing edge of v
+     */
+    public int endEdge(int v) {
+        return outOffsets[v + 1];
+    }
+
+    /**
+     * @return the target node of edge e
+     */
+    public int target(int e) {
+        return targets[e];
+    }
+
+    /**
+     * @return the latency of edge e
+     */
+    public int latency(int e) {
+        return latencies[e];
+    }
+
+    /**
+     * @return the Edge the edge e was created from, null if built from an edge
+     *         list
+     */
+    public Edge edge(int e) {
+        return edges[e];
+    }
+
+    /**
+     * @return the index of the first incoming edge of v
+     */
+    public int firstInEdge(int v) {
+        return inOffsets[v];
+    }
+
+    /**
+     * @return the index after the last incoming edge of v
+     */
+    public int endInEdge(int v) {
+        return inOffsets[v + 1];
+    }
+
+    /**
+     * @return the source node of incoming edge i
+     */
+    public int source(int i) {
+        return sources[i];
+    }
+
+    /**
+     * @return the outgoing edge index of incoming edge i, e.g. for
+     *         {@link #latency(int)}
+     */
+    public int inEdge(int i) {
+        return inEdges[i];
+    }
+
+}
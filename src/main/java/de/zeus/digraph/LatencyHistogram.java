@@ -0,0 +1,196 @@
+package de.zeus.digraph;
+
+import java.util.Arrays;
+
+/**
+ * Compact latency histogram with log-linear buckets.
+ *
+ * Latencies below 32ms are counted exactly, larger ones in buckets of 1/16 of
+ * their power of two, i.e. with a relative error below 6.25%. Counts are kept
+ * in a primitive array that only grows up to the largest recorded bucket, at
+ * most 448 buckets for latencies up to Integer.MAX_VALUE.
+ *
+ * Histograms are not thread safe.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 16;
+    private static final int EXACT = 2 * SUB_BUCKETS;
+
+    // total count of a composed histogram, see convolve()
+    private static final double SCALE = 1L << 32;
+
+    private long[] counts = new long[0];
+    private long count;
+
+    /**
+     * @return a histogram with a single observation
+     */
+    public static LatencyHistogram of(int latency) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(latency);
+        return histogram;
+    }
+
+    /**
+     * Records one observation.
+     *
+     * @param latency
+     *            in ms, must not be negative
+     */
+    public void record(int latency) {
+        record(latency, 1);
+    }
+
+    /**
+     * Records count observations of the same latency.
+     */
+    public void record(int latency, long count) {
+        if (latency < 0) {
+            throw new RuntimeException("Latency is negative");
+        }
+
+        add(bucket(latency), count);
+    }
+
+    private void add(int bucket, long count) {
+        if (bucket >= counts.length) {
+            counts = Arrays.copyOf(counts, bucket + 1);
+        }
+
+        counts[bucket] += count;
+        this.count += count;
+    }
+
+    /**
+     * Adds all observations of another histogram, e.g. to merge per thread
+     * histograms.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = other.counts.length - 1; i >= 0; i--) {
+            if (other.counts[i] != 0) {
+                add(i, other.counts[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the number of observations
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the mean latency, or -1 if empty
+     */
+    public double getMean() {
+        if (count == 0) {
+            return -1;
+        }
+
+        double sum = 0;
+        for (int i = 0; i < counts.length; i++) {
+            sum += (double) counts[i] * value(i);
+        }
+
+        return sum / count;
+    }
+
+    /**
+     * @param percentile
+     *            e.g. 99 for the p99
+     * @return the latency at the given percentile, or -1 if empty
+     */
+    public int getPercentile(double percentile) {
+        if (count == 0) {
+            return -1;
+        }
+
+        // rank of the observation, at least the first one
+        double rank = Math.max(1, Math.ceil(percentile / 100 * count));
+
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return value(i);
+            }
+        }
+
+        return value(counts.length - 1);
+    }
+
+    /**
+     * Composes two independent latencies, e.g. of two consecutive edges.
+     *
+     * The result holds relative frequencies: its total count is about 2^32
+     * regardless of the input counts, so percentiles and the mean are meaningful
+     * but the count is not.
+     *
+     * @return the distribution of the sum of both latencies
+     */
+    public LatencyHistogram convolve(LatencyHistogram other) {
+        LatencyHistogram result = new LatencyHistogram();
+
+        if (count == 0 || other.count == 0) {
+            return result;
+        }
+
+        double norm = SCALE / count / other.count;
+
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+
+            for (int j = 0; j < other.counts.length; j++) {
+                if (other.counts[j] == 0) {
+                    continue;
+                }
+
+                long weight = Math.round(norm * counts[i] * other.counts[j]);
+                if (weight > 0) {
+                    result.add(bucket(Math.min((long) value(i) + value(j), Integer.MAX_VALUE)), weight);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the approximate memory of the histogram in bytes
+     */
+    public long getMemoryBytes() {
+        return 16 + 16 + 8 + (long) counts.length * Long.BYTES; // headers, count and buckets
+    }
+
+    private static int bucket(long latency) {
+        if (latency < EXACT) {
+            return (int) latency;
+        }
+
+        int shift = 63 - Long.numberOfLeadingZeros(latency) - 4; // latency >> shift in [16, 32)
+        return (shift + 1) * SUB_BUCKETS + (int) (latency >> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * @return the middle of the bucket
+     */
+    private static int value(int bucket) {
+        if (bucket < EXACT) {
+            return bucket;
+        }
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return (int) Math.min(lower + (1L << shift >> 1), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public String toString() {
+        return "p50=" + getPercentile(50) + " p99=" + getPercentile(99) + " count=" + count;
+    }
+
+}
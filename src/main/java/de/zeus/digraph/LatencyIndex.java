@@ -0,0 +1,304 @@
+package de.zeus.digraph;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed shortest latency index, answers "can X reach Y (within N ms)"
+ * without searching the graph.
+ *
+ * Implemented with pruned landmark labeling: nodes are processed in the order
+ * of decreasing degree, each one runs a forward and a backward Dijkstra that is
+ * pruned wherever the labels built so far already cover the distance. The
+ * distance of a pair is then the minimum over the common hubs of the out label
+ * of "from" and the in label of "to", a merge of two small sorted arrays.
+ *
+ * The index is a snapshot, changes to the DiGraph require a rebuild.
+ */
+public class LatencyIndex {
+
+    private IndexedGraph graph;
+
+    // labels of v: [offsets[v], offsets[v + 1]), hubs are ranks in ascending order
+    private int[] outOffsets; // hubs reachable from v, with d(v, hub)
+    private int[] outHubs;
+    private int[] outDists;
+    private int[] inOffsets; // hubs that reach v, with d(hub, v)
+    private int[] inHubs;
+    private int[] inDists;
+
+    private long buildNanos;
+
+    public LatencyIndex(DiGraph diGraph) {
+        this(new IndexedGraph(diGraph));
+    }
+
+    public LatencyIndex(IndexedGraph graph) {
+        long start = System.nanoTime();
+        this.graph = graph;
+
+        int n = graph.size();
+
+        // order by degree, hubs with many edges cover most shortest paths
+        Integer[] order = new Integer[n];
+        for (int v = 0; v < n; v++) {
+            order[v] = v;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(degree(b), degree(a)));
+
+        Labels out = new Labels(n);
+        Labels in = new Labels(n);
+
+        int[] dist = new int[n];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        int[] touched = new int[n];
+        int[] hubDist = new int[n]; // distance to/from the current hub, by rank
+        Arrays.fill(hubDist, Integer.MAX_VALUE);
+        MinHeap heap = new MinHeap();
+
+        for (int rank = 0; rank < n; rank++) {
+            int hub = order[rank];
+
+            // forward search: hub reaches u
+            out.load(hub, hubDist);
+            search(hub, rank, true, in, hubDist, dist, touched, heap);
+            out.unload(hub, hubDist);
+
+            // backward search: u reaches hub
+            in.load(hub, hubDist);
+            search(hub, rank, false, out, hubDist, dist, touched, heap);
+            in.unload(hub, hubDist);
+        }
+
+        outOffsets = new int[n + 1];
+        outHubs = out.flatten(outOffsets, true);
+        outDists = out.flatten(outOffsets, false);
+        inOffsets = new int[n + 1];
+        inHubs = in.flatten(inOffsets, true);
+        inDists = in.flatten(inOffsets, false);
+
+        buildNanos = System.nanoTime() - start;
+    }
+
+    private long degree(int v) {
+        long out = graph.endEdge(v) - graph.firstEdge(v);
+        long in = graph.endInEdge(v) - graph.firstInEdge(v);
+        return (out + 1) * (in + 1);
+    }
+
+    /**
+     * Pruned Dijkstra from hub, labels every node whose distance is not yet
+     * covered by the existing labels.
+     */
+    private void search(int hub, int rank, boolean forward, Labels labels, int[] hubDist, int[] dist, int[] touched,
+            MinHeap heap) {
+        int touchedCount = 0;
+        heap.clear();
+        dist[hub] = 0;
+        touched[touchedCount++] = hub;
+        heap.push(0, hub);
+
+        while (heap.isEmpty() == false) {
+            long entry = heap.poll();
+            int u = MinHeap.node(entry);
+            int d = (int) MinHeap.key(entry);
+
+            if (d > dist[u]) { // stale entry
+                continue;
+            }
+
+            if (labels.covers(u, d, hubDist)) {
+                continue;
+            }
+            labels.add(u, rank, d);
+
+            int first = forward ? graph.firstEdge(u) : graph.firstInEdge(u);
+            int end = forward ? graph.endEdge(u) : graph.endInEdge(u);
+            for (int i = first; i < end; i++) {
+                int v = forward ? graph.target(i) : graph.source(i);
+                int alt = d + graph.latency(forward ? i : graph.inEdge(i));
+
+                if (alt < dist[v]) {
+                    if (dist[v] == Integer.MAX_VALUE) {
+                        touched[touchedCount++] = v;
+                    }
+                    dist[v] = alt;
+                    heap.push(alt, v);
+                }
+            }
+        }
+
+        for (int i = 0; i < touchedCount; i++) {
+            dist[touched[i]] = Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Finds the shortest latency, same semantics as
+     * {@link DiGraph#getShortestLatency(String, String)}: for equal nodes the
+     * shortest cycle is returned.
+     *
+     * @param from
+     *            "A"
+     * @param to
+     *            "B"
+     * @return -1 if no such trace exists
+     */
+    public int getShortestLatency(String from, String to) {
+        int s = graph.getId(from);
+        int t = graph.getId(to);
+
+        if (s == -1 || t == -1) {
+            return -1;
+        }
+
+        long latency = s == t ? cycle(s) : distance(s, t);
+        return latency == Long.MAX_VALUE ? -1 : (int) latency;
+    }
+
+    /**
+     * @return true if "to" can be reached from "from" (for equal nodes, if a cycle
+     *         exists)
+     */
+    public boolean isReachable(String from, String to) {
+        return getShortestLatency(from, to) != -1;
+    }
+
+    /**
+     * @return true if "to" can be reached from "from" with a latency of at most
+     *         budget
+     */
+    public boolean isReachable(String from, String to, int budget) {
+        int latency = getShortestLatency(from, to);
+        return latency != -1 && latency <= budget;
+    }
+
+    private long cycle(int s) {
+        long min = Long.MAX_VALUE;
+
+        // shortest path to a predecessor, plus the edge back to s
+        for (int i = graph.firstInEdge(s); i < graph.endInEdge(s); i++) {
+            long d = distance(s, graph.source(i));
+            if (d != Long.MAX_VALUE) {
+                min = Math.min(min, d + graph.latency(graph.inEdge(i)));
+            }
+        }
+
+        return min;
+    }
+
+    private long distance(int s, int t) {
+        long min = Long.MAX_VALUE;
+
+        // merge the sorted hub lists
+        int i = outOffsets[s];
+        int iEnd = outOffsets[s + 1];
+        int j = inOffsets[t];
+        int jEnd = inOffsets[t + 1];
+
+        while (i < iEnd && j < jEnd) {
+            if (outHubs[i] < inHubs[j]) {
+                i++;
+            } else if (outHubs[i] > inHubs[j]) {
+                j++;
+            } else {
+                min = Math.min(min, (long) outDists[i++] + inDists[j++]);
+            }
+        }
+
+        return min;
+    }
+
+    /**
+     * @return the time spent building the index in ns
+     */
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    /**
+     * @return the number of (hub, distance) entries of all labels
+     */
+    public long getLabelEntries() {
+        return (long) outHubs.length + inHubs.length;
+    }
+
+    /**
+     * @return the approximate memory of the labels in bytes, excluding the
+     *         IndexedGraph
+     */
+    public long getMemoryBytes() {
+        return getLabelEntries() * 2 * Integer.BYTES + (outOffsets.length + inOffsets.length) * Integer.BYTES;
+    }
+
+    /**
+     * Growable per node label lists used while building.
+     */
+    private static class Labels {
+
+        private int[][] hubs;
+        private int[][] dists;
+        private int[] sizes;
+
+        Labels(int n) {
+            hubs = new int[n][];
+            dists = new int[n][];
+            sizes = new int[n];
+        }
+
+        void add(int v, int hub, int dist) {
+            if (hubs[v] == null) {
+                hubs[v] = new int[4];
+                dists[v] = new int[4];
+            } else if (sizes[v] == hubs[v].length) {
+                hubs[v] = Arrays.copyOf(hubs[v], sizes[v] * 2);
+                dists[v] = Arrays.copyOf(dists[v], sizes[v] * 2);
+            }
+
+            hubs[v][sizes[v]] = hub;
+            dists[v][sizes[v]++] = dist;
+        }
+
+        /**
+         * @return true if a hub of v already yields a distance of at most d, given the
+         *         distances between the current hub and all hubs in hubDist
+         */
+        boolean covers(int v, int d, int[] hubDist) {
+            for (int i = 0; i < sizes[v]; i++) {
+                int other = hubDist[hubs[v][i]];
+                if (other != Integer.MAX_VALUE && (long) other + dists[v][i] <= d) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void load(int v, int[] hubDist) {
+            for (int i = 0; i < sizes[v]; i++) {
+                hubDist[hubs[v][i]] = dists[v][i];
+            }
+        }
+
+        void unload(int v, int[] hubDist) {
+            for (int i = 0; i < sizes[v]; i++) {
+                hubDist[hubs[v][i]] = Integer.MAX_VALUE;
+            }
+        }
+
+        int[] flatten(int[] offsets, boolean hubList) {
+            int n = sizes.length;
+            for (int v = 0; v < n; v++) {
+                offsets[v + 1] = offsets[v] + sizes[v];
+            }
+
+            int[] flat = new int[offsets[n]];
+            for (int v = 0; v < n; v++) {
+                if (sizes[v] > 0) {
+                    System.arraycopy(hubList ? hubs[v] : dists[v], 0, flat, offsets[v], sizes[v]);
+                }
+            }
+
+            return flat;
+        }
+    }
+
+}
@@ -0,0 +1,243 @@
+package de.zeus.digraph;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * High throughput ingestion of observed latencies, e.g. from production spans.
+ *
+ * Observations are aggregated per edge in a ring of time windows, each holding
+ * a striped sum and count ({@link LongAdder}), so many producer threads can
+ * record concurrently without locking and without touching {@link Node}
+ * or {@link Edge}. {@link #fold()} periodically folds the windows into the
+ * average latency of the edges: older windows are weighted down by the decay
+ * factor, windows that fell out of the ring are forgotten.
+ *
+ * A window is replaced by a fresh one with a single compare-and-set when its
+ * slot is reused, so concurrent producers of the same window never lose an
+ * observation or count it twice. A producer that still holds a window when the
+ * ring wraps around adds to the replaced window, so that observation is lost;
+ * its window has expired by then, so a fold would have ignored it anyway.
+ * Structural changes of the DiGraph must not run concurrently with recording.
+ */
+public class LatencyIngestor implements Closeable {
+
+    private DiGraph diGraph;
+    private long windowMillis;
+    private int windows;
+    private double decay;
+    private LongSupplier clock;
+
+    // from -> to -> accumulator
+    private Map<String, Map<String, Accumulator>> accumulators = new ConcurrentHashMap<>();
+    private LongAdder dropped = new LongAdder();
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param windowMillis
+     *            length of a window, e.g. 10000
+     * @param windows
+     *            number of windows to keep, e.g. 6 for the last minute
+     */
+    public LatencyIngestor(DiGraph diGraph, long windowMillis, int windows) {
+        this(diGraph, windowMillis, windows, 1, System::currentTimeMillis);
+    }
+
+    /**
+     * @param decay
+     *            weight factor per window of age, 1 for no decay, e.g. 0.5 to halve
+     *            the weight of each older window
+     * @param clock
+     *            current time in ms
+     */
+    public LatencyIngestor(DiGraph diGraph, long windowMillis, int windows, double decay, LongSupplier clock) {
+        if (windowMillis <= 0 || windows <= 0 || decay <= 0 || decay > 1) {
+            throw new RuntimeException("invalid window configuration");
+        }
+
+        this.diGraph = diGraph;
+        this.windowMillis = windowMillis;
+        this.windows = windows;
+        this.decay = decay;
+        this.clock = clock;
+    }
+
+    /**
+     * Records an observed latency, safe to call from many threads.
+     *
+     * @param from
+     *            e.g. "A"
+     * @param to
+     *            e.g. "B"
+     * @param latency
+     *            the observed latency in ms
+     * @return false if no such edge exists, the observation is dropped
+     */
+    public boolean record(String from, String to, int latency) {
+        if (latency < 0) {
+            throw new RuntimeException("Latency is negative");
+        }
+
+        Accumulator accumulator = getAccumulator(from, to);
+        if (accumulator == null) {
+            dropped.increment();
+            return false;
+        }
+
+        accumulator.record(latency, clock.getAsLong() / windowMillis);
+        return true;
+    }
+
+    private Accumulator getAccumulator(String from, String to) {
+        Map<String, Accumulator> targets = accumulators.get(from);
+        Accumulator accumulator = targets == null ? null : targets.get(to);
+        if (accumulator != null) { // fast path, no allocation
+            return accumulator;
+        }
+
+        Edge edge = diGraph.getEdge(from, to);
+        if (edge == null) {
+            return null;
+        }
+
+        return accumulators.computeIfAbsent(from, f -> new ConcurrentHashMap<>()).computeIfAbsent(to,
+                t -> new Accumulator(edge, windows));
+    }
+
+    /**
+     * Folds the windows into the edge latencies, edges without observations in
+     * the kept windows keep their latency.
+     *
+     * @return the number of updated edges
+     */
+    public int fold() {
+        long epoch = clock.getAsLong() / windowMillis;
+        int updated = 0;
+
+        for (Map<String, Accumulator> targets : accumulators.values()) {
+            for (Accumulator accumulator : targets.values()) {
+                if (accumulator.fold(epoch, decay)) {
+                    updated++;
+                }
+            }
+        }
+
+        return updated;
+    }
+
+    /**
+     * Starts folding periodically in a background thread, until closed.
+     */
+    public synchronized void startFolding(long periodMillis) {
+        if (scheduler != null) {
+            throw new RuntimeException("already folding");
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "digraph-fold");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::fold, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the number of observations for unknown edges
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops periodic folding.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Ring of time windows of one edge.
+     */
+    private static class Accumulator {
+
+        private Edge edge;
+        private AtomicReferenceArray<Window> ring;
+
+        Accumulator(Edge edge, int windows) {
+            this.edge = edge;
+            this.ring = new AtomicReferenceArray<>(windows);
+        }
+
+        void record(int latency, long epoch) {
+            int slot = (int) (epoch % ring.length());
+
+            Window window = ring.get(slot);
+            while (window == null || window.epoch < epoch) {
+                // first recording in a new window replaces the expired one
+                Window next = new Window(epoch);
+                if (ring.compareAndSet(slot, window, next)) {
+                    window = next;
+                } else {
+                    window = ring.get(slot);
+                }
+            }
+
+            // a window replaced meanwhile takes the observation with it, it has expired
+            if (window.epoch == epoch) { // else the clock went backwards, drop
+                window.sum.add(latency);
+                window.count.increment();
+            }
+        }
+
+        boolean fold(long epoch, double decay) {
+            double sum = 0;
+            double count = 0;
+
+            for (int slot = 0; slot < ring.length(); slot++) {
+                Window window = ring.get(slot);
+                long age = window == null ? -1 : epoch - window.epoch;
+                if (age < 0 || age >= ring.length()) { // empty or expired
+                    continue;
+                }
+
+                double weight = Math.pow(decay, age);
+                sum += weight * window.sum.sum();
+                count += weight * window.count.sum();
+            }
+
+            if (count == 0) {
+                return false;
+            }
+
+            edge.setLatency((int) Math.round(sum / count));
+            return true;
+        }
+    }
+
+    /**
+     * Striped sum and count of one time window.
+     */
+    private static class Window {
+
+        private final long epoch;
+        private final LongAdder sum = new LongAdder();
+        private final LongAdder count = new LongAdder();
+
+        Window(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+
+}
@@ -1,38 +1,61 @@
 package de.zeus.digraph;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 
 public class Main {
 
     public static void usage() {
         System.out.println("java -jar target/Main.java /path/to/input/file");
+        System.out.println("java -jar target/Main.java --server <port> /path/to/input/file");
+        System.out.println("java -jar target/Main.java --batch /path/to/input/file [/path/to/queries|-]");
+        System.out.println("java -jar target/Main.java --generate <er|ba|mesh> <nodes> <seed> /path/to/output[.bin]");
+        System.out.println("java -jar target/Main.java --soak /path/to/edge/list <minutes> [threads]");
         System.out.println("example: java -jar target/digraph-0.0.1-SNAPSHOT-jar-with-dependencies.jar src/main/resources/input");
     }
 
     public static String getLatency(int latency) {
-        if (latency < 0) {
-            return "NO SUCH TRACE";
-        }
-
-        return String.valueOf(latency);
+        return QueryExecutor.formatLatency(latency);
     }
 
     public static void main(String[] args) {
 
+        if (args.length == 3 && args[0].equals("--server")) {
+            server(args[1], args[2]);
+            return;
+        }
+
+        if ((args.length == 2 || args.length == 3) && args[0].equals("--batch")) {
+            batch(args[1], args.length == 3 ? args[2] : "-");
+            return;
+        }
+
+        if (args.length == 5 && args[0].equals("--generate")) {
+            generate(args[1], args[2], args[3], args[4]);
+            return;
+        }
+
+        if ((args.length == 3 || args.length == 4) && args[0].equals("--soak")) {
+            soak(args[1], args[2], args.length == 4 ? args[3] : null);
+            return;
+        }
+
         if (args.length != 1) {
             System.out.println("No input file ...");
             usage();
             return;
         }
 
-        DiGraph diGraph = null;
-        try {
-             diGraph = new DiGraph(Files.readString(Paths.get(args[0])));
-
-        } catch (NumberFormatException | IOException e) {
-            e.printStackTrace();
+        DiGraph diGraph = load(args[0]);
+        if (diGraph == null) {
             return;
         }
 
@@ -48,4 +71,117 @@ public class Main {
         System.out.println("10. " + diGraph.getPathMaxLatency("C", "C", 30).size());
     }
 
+    /**
+     * Loads the graph once and answers queries on the given port until killed.
+     */
+    private static void server(String port, String input) {
+        DiGraph diGraph = load(input);
+        if (diGraph == null) {
+            return;
+        }
+
+        try (QueryServer server = new QueryServer(diGraph, Integer.parseInt(port))) {
+            System.out.println("listening on port " + server.getPort());
+            server.run();
+
+        } catch (NumberFormatException | IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Loads the graph once and answers the queries of a file, or stdin for "-".
+     * Results are written to stdout, the throughput to stderr.
+     */
+    private static void batch(String input, String queries) {
+        DiGraph diGraph = load(input);
+        if (diGraph == null) {
+            return;
+        }
+
+        BatchRunner runner = new BatchRunner(diGraph);
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+
+        try (BufferedReader in = queries.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16)
+                : Files.newBufferedReader(Paths.get(queries))) {
+
+            runner.run(in, out);
+            System.err.println(runner.getStatistics());
+
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Streams a synthetic graph to an edge list file, binary if the name ends
+     * with ".bin". Meshes have 8 layers, a fanout of 3 and 5% back edges.
+     */
+    private static void generate(String model, String nodes, String seed, String output) {
+        if (model.matches("er|ba|mesh") == false) {
+            System.out.println("Unknown model " + model);
+            usage();
+            return;
+        }
+
+        Path path = Paths.get(output);
+
+        try (EdgeListFile.Output out = EdgeListFile.open(path, output.endsWith(".bin"))) {
+            TopologyGenerator generator = new TopologyGenerator(Long.parseLong(seed));
+            int n = Integer.parseInt(nodes);
+            long edges;
+
+            switch (model) {
+            case "er":
+                edges = generator.erdosRenyi(n, 4, out);
+                break;
+            case "ba":
+                edges = generator.barabasiAlbert(n, 3, out);
+                break;
+            default:
+                edges = generator.mesh(8, Math.max(3, n / 8), 3, 0.05, out);
+            }
+
+            System.out.println(edges + " edges written to " + path);
+
+        } catch (NumberFormatException | IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Runs the soak workload against an edge list file, one sample per minute.
+     */
+    private static void soak(String input, String minutes, String threads) {
+        try {
+            DiGraph diGraph = EdgeListFile.toDiGraph(Paths.get(input));
+            int n = threads == null ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(threads);
+
+            SoakHarness.Report report = new SoakHarness(diGraph, n, 1).run(Long.parseLong(minutes) * 60_000, 60_000,
+                    System.out);
+            System.out.printf("%d ops, %d errors, p99 drift %.2f, heap growth %dMB%n", report.getOperations(),
+                    report.getErrors(), report.getLatencyDrift(), report.getHeapGrowth() >> 20);
+
+        } catch (NumberFormatException | IOException e) {
+            e.printStackTrace();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the graph read from the input file, or null if it cannot be read
+     */
+    private static DiGraph load(String input) {
+        try {
+            return new DiGraph(Files.readString(Paths.get(input)));
+
+        } catch (NumberFormatException | IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
 }
@@ -0,0 +1,90 @@
+package de.zeus.digraph;
+
+import java.util.Arrays;
+
+/**
+ * Binary min heap of (key, node) pairs packed into longs, used as priority
+ * queue for Dijkstra style searches without boxing.
+ *
+ * Keys must be non negative and smaller than 2^31. Decrease-key is not
+ * supported, callers push duplicates and skip stale entries when polling.
+ */
+class MinHeap {
+
+    private long[] heap;
+    private int size;
+
+    MinHeap() {
+        this(16);
+    }
+
+    MinHeap(int capacity) {
+        heap = new long[Math.max(capacity, 1)];
+    }
+
+    void push(long key, int node) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+
+        long entry = key << 32 | node;
+        int i = size++;
+
+        // sift up
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= entry) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+    }
+
+    /**
+     * Removes the minimum entry, use {@link #key(long)} and {@link #node(long)} to
+     * unpack it.
+     */
+    long poll() {
+        long min = heap[0];
+        long last = heap[--size];
+
+        // sift down
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (last <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        if (size > 0) {
+            heap[i] = last;
+        }
+
+        return min;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    static long key(long entry) {
+        return entry >>> 32;
+    }
+
+    static int node(long entry) {
+        return (int) entry;
+    }
+
+}
@@ -4,6 +4,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 /**
  * A Node is represented by its name, which is unique.
@@ -27,8 +28,10 @@ public class Node {
      *            the node to connect to
      * @param latency
      *            edge payload
+     * @see DiGraph#connect(String, String, int) which connects nodes from outside
+     *      the package, so its snapshot follows every structural change
      */
-    public void connect(Node to, int latency) {
+    void connect(Node to, int latency) {
         // Create an Edge, and put it in the edges map.
         // Check constraint "A given connection will never appear more than once"
         if (edges.putIfAbsent(to.getName(), new Edge(this, to, latency)) != null) {
@@ -77,6 +80,17 @@ public class Node {
      * @return
      */
     public List<Trace> getPaths(Node to, int maxDepth) {
+        return getPaths(to, maxDepth, node -> true);
+    }
+
+    /**
+     * Returns all paths to "to" with the given max depth, edges to nodes which
+     * cannot reach "to" are not followed.
+     *
+     * @param mayReach
+     *            false for nodes which cannot reach "to"
+     */
+    public List<Trace> getPaths(Node to, int maxDepth, Predicate<Node> mayReach) {
         List<Trace> ret = new LinkedList<>();
 
         if (maxDepth == 0) {
@@ -84,7 +98,7 @@ public class Node {
         }
 
         // for each edge
-        edges.values().stream().forEach(edge -> {
+        edges.values().stream().filter(edge -> mayReach.test(edge.getTo())).forEach(edge -> {
 
             // find path
             if (edge.getTo().equals(to)) {
@@ -92,7 +106,7 @@ public class Node {
             }
 
             // find sub paths
-            edge.getTo().getPaths(to, maxDepth - 1).forEach(trace -> {
+            edge.getTo().getPaths(to, maxDepth - 1, mayReach).forEach(trace -> {
                 trace.getNodes().add(0, getName());
                 ret.add(trace);
             });
@@ -109,13 +123,25 @@ public class Node {
      * @return
      */
     public List<Trace> getPathsMaxLatency(Node to, int maxLatency) {
+        return getPathsMaxLatency(to, maxLatency, node -> true);
+    }
+
+    /**
+     * Returns all paths to "to" with the given max latency, edges to nodes which
+     * cannot reach "to" are not followed.
+     *
+     * @param mayReach
+     *            false for nodes which cannot reach "to"
+     */
+    public List<Trace> getPathsMaxLatency(Node to, int maxLatency, Predicate<Node> mayReach) {
         LinkedList<String> trace = new LinkedList<>();
         trace.add(to.getName());
 
-        return getPathsMaxLatency(to, maxLatency, 0, new Trace(trace));
+        return getPathsMaxLatency(to, maxLatency, 0, new Trace(trace), mayReach);
     }
 
-    private List<Trace> getPathsMaxLatency(Node to, int maxLatency, int currentLatency, Trace trace) {
+    private List<Trace> getPathsMaxLatency(Node to, int maxLatency, int currentLatency, Trace trace,
+            Predicate<Node> mayReach) {
         List<Trace> ret = new LinkedList<>();
 
         if (currentLatency >= maxLatency) {
@@ -129,6 +155,10 @@ public class Node {
                 continue; // latency of this edge exceeds max latency
             }
 
+            if (mayReach.test(edge.getTo()) == false) {
+                continue; // "to" is unreachable from this edge
+            }
+
             Trace traceCopy = new Trace(trace);
             traceCopy.getNodes().add(traceCopy.getNodes().size(), edge.getTo().getName());
 
@@ -137,7 +167,7 @@ public class Node {
                 ret.add(traceCopy);
             }
 
-            ret.addAll(edge.getTo().getPathsMaxLatency(to, maxLatency, newLatency, traceCopy));
+            ret.addAll(edge.getTo().getPathsMaxLatency(to, maxLatency, newLatency, traceCopy, mayReach));
         }
 
         return ret;
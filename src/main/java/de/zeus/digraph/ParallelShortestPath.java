@@ -0,0 +1,404 @@
+package de.zeus.digraph;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Single source shortest latencies computed by all cores, for single queries on
+ * huge graphs.
+ *
+ * Implemented as bulk synchronous delta-stepping: nodes are kept in buckets of
+ * width delta by tentative distance, the lowest non empty bucket is settled in
+ * rounds where all of its nodes relax their edges in parallel. Every node is
+ * owned by the worker of its partition, only the owner writes its distance:
+ * relaxations of nodes of other partitions are sent as messages that the
+ * owners apply after a barrier. A partitioning with few cut edges therefore
+ * keeps most relaxations local.
+ *
+ * Tentative distances are at most the maximum edge latency above the current
+ * bucket, so each worker keeps maxLatency / delta + 2 buckets in a ring, which
+ * are allocated on first use. The ring is capped at {@link #MAX_SLOTS}, nodes
+ * beyond it wait in an overflow list until the ring reaches their bucket.
+ */
+public class ParallelShortestPath implements Closeable {
+
+    public static final int MAX_SLOTS = 1 << 12;
+
+    private IndexedGraph graph;
+    private GraphPartitioner partitioner;
+    private int delta;
+
+    private ExecutorService pool;
+    private Worker[] workers;
+    private List<Callable<Boolean>> relaxTasks = new ArrayList<>();
+    private List<Callable<Boolean>> applyTasks = new ArrayList<>();
+
+    // shared, but every entry is only written by the owner of the node
+    private int[] dist;
+    private int[] relaxed; // distance a node last relaxed its edges with
+
+    /**
+     * @param partitioner
+     *            one worker thread is used per partition
+     * @param delta
+     *            bucket width, e.g. the average edge latency
+     */
+    public ParallelShortestPath(IndexedGraph graph, GraphPartitioner partitioner, int delta) {
+        if (delta <= 0) {
+            throw new RuntimeException("delta must be positive");
+        }
+
+        this.graph = graph;
+        this.partitioner = partitioner;
+        this.delta = delta;
+
+        int k = partitioner.getPartitions();
+        pool = Executors.newFixedThreadPool(k, r -> {
+            Thread thread = new Thread(r, "digraph-delta-stepping");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        workers = new Worker[k];
+        for (int p = 0; p < k; p++) {
+            Worker worker = new Worker(p, k);
+            workers[p] = worker;
+            relaxTasks.add(worker::relax);
+            applyTasks.add(worker::apply);
+        }
+    }
+
+    /**
+     * Finds the shortest latency, same semantics as
+     * {@link DiGraph#getShortestLatency(String, String)}.
+     *
+     * @return -1 if no such trace exists
+     */
+    public int getShortestLatency(String from, String to) {
+        int s = graph.getId(from);
+        int t = graph.getId(to);
+
+        if (s == -1 || t == -1) {
+            return -1;
+        }
+
+        return shortestLatency(graph, distances(s), s, t);
+    }
+
+    /**
+     * Computes the latencies from source to all nodes.
+     *
+     * @return the latency per node, Integer.MAX_VALUE if unreachable
+     */
+    public synchronized int[] distances(int source) {
+        int n = graph.size();
+        dist = new int[n];
+        relaxed = new int[n];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        Arrays.fill(relaxed, Integer.MAX_VALUE);
+
+        int maxLatency = 0;
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            maxLatency = Math.max(maxLatency, graph.latency(e));
+        }
+        long needed = (long) maxLatency / delta + 2;
+        int slots = needed >= MAX_SLOTS ? MAX_SLOTS : Integer.highestOneBit((int) needed - 1) << 1;
+
+        for (Worker worker : workers) {
+            worker.reset(slots);
+        }
+
+        dist[source] = 0;
+        workers[partitioner.partition(source)].bucket(0).add(source);
+
+        int bucket = 0;
+        while ((bucket = nextBucket(bucket)) != -1) {
+            for (Worker worker : workers) {
+                worker.current = bucket;
+                worker.refill();
+            }
+
+            // settle the bucket, relaxations may refill it
+            do {
+                invokeAll(relaxTasks);
+                invokeAll(applyTasks);
+            } while (nextBucket(bucket) == bucket);
+        }
+
+        return dist;
+    }
+
+    /**
+     * @return the lowest non empty bucket from "from" on over all workers, or -1
+     */
+    private int nextBucket(int from) {
+        int slots = workers[0].buckets.length;
+
+        // overflow buckets are beyond the ring when added, but the ring moved since
+        int overflow = Integer.MAX_VALUE;
+        for (Worker worker : workers) {
+            overflow = Math.min(overflow, worker.overflowBucket);
+        }
+
+        for (long b = from; b < (long) from + slots && b < overflow; b++) {
+            for (Worker worker : workers) {
+                if (worker.isEmpty((int) b) == false) {
+                    return (int) b;
+                }
+            }
+        }
+
+        return overflow == Integer.MAX_VALUE ? -1 : overflow;
+    }
+
+    private void invokeAll(List<Callable<Boolean>> tasks) {
+        try {
+            for (Future<Boolean> future : pool.invokeAll(tasks)) {
+                future.get(); // propagate exceptions
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted", e);
+
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Sequential Dijkstra on the IndexedGraph, the baseline for the parallel
+     * version.
+     *
+     * @return the latency per node, Integer.MAX_VALUE if unreachable
+     */
+    public static int[] dijkstra(IndexedGraph graph, int source) {
+        int[] dist = new int[graph.size()];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        MinHeap heap = new MinHeap();
+
+        dist[source] = 0;
+        heap.push(0, source);
+
+        while (heap.isEmpty() == false) {
+            long entry = heap.poll();
+            int u = MinHeap.node(entry);
+            if (MinHeap.key(entry) > dist[u]) { // stale entry
+                continue;
+            }
+
+            for (int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+                int v = graph.target(e);
+                int alt = dist[u] + graph.latency(e);
+
+                if (alt < dist[v]) {
+                    dist[v] = alt;
+                    heap.push(alt, v);
+                }
+            }
+        }
+
+        return dist;
+    }
+
+    /**
+     * Extracts the shortest latency from s to t from the distances of s, for s ==
+     * t the shortest cycle.
+     *
+     * @return -1 if no such trace exists
+     */
+    static int shortestLatency(IndexedGraph graph, int[] dist, int s, int t) {
+        long latency = dist[t];
+
+        if (s == t) {
+            latency = Long.MAX_VALUE;
+            for (int i = graph.firstInEdge(t); i < graph.endInEdge(t); i++) {
+                int u = graph.source(i);
+                if (dist[u] != Integer.MAX_VALUE) {
+                    latency = Math.min(latency, (long) dist[u] + graph.latency(graph.inEdge(i)));
+                }
+            }
+        }
+
+        return latency >= Integer.MAX_VALUE ? -1 : (int) latency;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Owner of the nodes of one partition.
+     */
+    private class Worker {
+
+        private int p;
+        private int current;
+        private IntList[] buckets; // bucket b in slot b % length, null until used
+        private IntList overflow = new IntList(); // nodes beyond the ring
+        private int overflowBucket; // lowest bucket in the overflow, MAX_VALUE if empty
+        private IntList frontier = new IntList();
+        private IntList[] outbox; // (node, distance) pairs per owner
+
+        Worker(int p, int k) {
+            this.p = p;
+            outbox = new IntList[k];
+            for (int q = 0; q < k; q++) {
+                outbox[q] = new IntList();
+            }
+        }
+
+        void reset(int slots) {
+            current = 0;
+            overflow.size = 0;
+            overflowBucket = Integer.MAX_VALUE;
+
+            if (buckets == null || buckets.length != slots) {
+                buckets = new IntList[slots];
+                return;
+            }
+
+            for (IntList bucket : buckets) {
+                if (bucket != null) {
+                    bucket.size = 0;
+                }
+            }
+        }
+
+        /**
+         * Moves the overflow nodes the ring reaches from the current bucket on into
+         * the ring, drops settled ones.
+         */
+        void refill() {
+            if (overflowBucket >= (long) current + buckets.length) {
+                return;
+            }
+
+            int kept = 0;
+            overflowBucket = Integer.MAX_VALUE;
+            for (int i = 0; i < overflow.size; i++) {
+                int v = overflow.values[i];
+                int d = dist[v];
+
+                if (relaxed[v] == d) { // settled meanwhile
+                    continue;
+                }
+
+                int b = d / delta;
+                if (b < (long) current + buckets.length) {
+                    bucket(b).add(v);
+                } else {
+                    overflow.values[kept++] = v;
+                    overflowBucket = Math.min(overflowBucket, b);
+                }
+            }
+            overflow.size = kept;
+        }
+
+        IntList bucket(int b) {
+            int slot = b % buckets.length;
+            if (buckets[slot] == null) {
+                buckets[slot] = new IntList();
+            }
+            return buckets[slot];
+        }
+
+        boolean isEmpty(int b) {
+            IntList bucket = buckets[b % buckets.length];
+            return bucket == null || bucket.size == 0;
+        }
+
+        /**
+         * Relaxes the edges of the nodes in the current bucket.
+         */
+        Boolean relax() {
+            // swap, relaxations of own nodes may add to the current bucket
+            IntList bucket = bucket(current);
+            IntList nodes = bucket.size == 0 ? null : bucket;
+            if (nodes == null) {
+                return false;
+            }
+            buckets[current % buckets.length] = frontier;
+            frontier = nodes;
+
+            for (int i = 0; i < nodes.size; i++) {
+                int v = nodes.values[i];
+                int d = dist[v];
+
+                if (d / delta != current || relaxed[v] == d) { // stale or already relaxed
+                    continue;
+                }
+                relaxed[v] = d;
+
+                for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                    int w = graph.target(e);
+                    int alt = (int) Math.min((long) d + graph.latency(e), Integer.MAX_VALUE - 1);
+                    int owner = partitioner.partition(w);
+
+                    if (owner == p) {
+                        update(w, alt);
+                    } else {
+                        outbox[owner].add(w);
+                        outbox[owner].add(alt);
+                    }
+                }
+            }
+
+            nodes.size = 0;
+            return true;
+        }
+
+        /**
+         * Applies the relaxations the other workers sent to this one.
+         */
+        Boolean apply() {
+            for (Worker sender : workers) {
+                IntList messages = sender.outbox[p];
+                for (int i = 0; i < messages.size; i += 2) {
+                    update(messages.values[i], messages.values[i + 1]);
+                }
+                messages.size = 0;
+            }
+            return true;
+        }
+
+        private void update(int w, int alt) {
+            if (alt < dist[w]) {
+                dist[w] = alt;
+
+                int b = alt / delta; // at least the current bucket
+                if (b < (long) current + buckets.length) {
+                    bucket(b).add(w);
+                } else {
+                    overflow.add(w);
+                    overflowBucket = Math.min(overflowBucket, b);
+                }
+            }
+        }
+    }
+
+    /**
+     * Growable int array.
+     */
+    private static class IntList {
+
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package de.zeus.digraph;
+
+import java.util.List;
+
+/**
+ * Executes textual queries against a DiGraph, one query per line.
+ *
+ * Supported queries:
+ *
+ * <pre>
+ * latency A-B-C          latency of the trace
+ * percentile A-B-C 99    p99 latency of the trace, from the edge histograms
+ * paths C C 3            number of paths with at most 3 hops
+ * count-exact A C 4      number of paths with exactly 4 hops
+ * max-latency C C 30     number of paths with a latency smaller than 30
+ * shortest B B           shortest latency
+ * </pre>
+ *
+ * Queries do not change the edges of the DiGraph, they may only build its
+ * cached snapshot, which is safe concurrently. A single executor can be shared
+ * between threads as long as no edges are connected meanwhile, latency updates
+ * are allowed.
+ */
+public class QueryExecutor {
+
+    public static final String ERROR = "ERROR ";
+    public static final String NO_SUCH_TRACE = "NO SUCH TRACE";
+
+    private DiGraph diGraph;
+
+    public QueryExecutor(DiGraph diGraph) {
+        if (diGraph == null) {
+            throw new RuntimeException("DiGraph is null");
+        }
+
+        this.diGraph = diGraph;
+    }
+
+    /**
+     * Executes a single query.
+     *
+     * @param query
+     *            e.g. "latency A-B-C"
+     * @return the result, e.g. "9" or "NO SUCH TRACE", or a line starting with
+     *         "ERROR " for unknown or malformed queries.
+     */
+    public String execute(String query) {
+        String[] args = query.trim().split("\\s+");
+
+        try {
+            switch (args[0]) {
+            case "latency":
+                checkArgs(args, 2);
+                return formatLatency(diGraph.getLatency(args[1]));
+
+            case "percentile":
+                checkArgs(args, 3);
+                return percentile(diGraph.getLatencyDistribution(args[1]), Double.parseDouble(args[2]));
+
+            case "paths":
+                checkArgs(args, 4);
+                return count(diGraph.getPaths(args[1], args[2], Integer.parseInt(args[3])));
+
+            case "count-exact":
+                checkArgs(args, 4);
+                return String.valueOf(Math.max(0, diGraph.countPathsExact(args[1], args[2], Integer.parseInt(args[3]))));
+
+            case "max-latency":
+                checkArgs(args, 4);
+                return count(diGraph.getPathMaxLatency(args[1], args[2], Integer.parseInt(args[3])));
+
+            case "shortest":
+                checkArgs(args, 3);
+                return formatLatency(diGraph.getShortestLatency(args[1], args[2]));
+
+            default:
+                return ERROR + "unknown query: " + query;
+            }
+
+        } catch (RuntimeException e) { // includes NumberFormatException
+            return ERROR + e.getMessage();
+        }
+    }
+
+    /**
+     * @param latency
+     *            a latency, negative if no such trace exists
+     * @return e.g. "9" or "NO SUCH TRACE"
+     */
+    public static String formatLatency(int latency) {
+        if (latency < 0) {
+            return NO_SUCH_TRACE;
+        }
+
+        return String.valueOf(latency);
+    }
+
+    private static void checkArgs(String[] args, int count) {
+        if (args.length != count) {
+            throw new RuntimeException("expected " + (count - 1) + " argument(s) for " + args[0]);
+        }
+    }
+
+    private static String percentile(LatencyHistogram distribution, double percentile) {
+        return formatLatency(distribution == null ? -1 : distribution.getPercentile(percentile));
+    }
+
+    private static String count(List<Trace> paths) {
+        return paths == null ? "0" : String.valueOf(paths.size());
+    }
+
+}
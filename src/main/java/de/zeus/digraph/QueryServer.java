@@ -0,0 +1,171 @@
+package de.zeus.digraph;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long running TCP server answering queries against a DiGraph that is loaded
+ * only once.
+ *
+ * The protocol is line based: each request line is a query understood by
+ * {@link QueryExecutor}, each response is exactly one line. Requests may be
+ * pipelined, responses are written in request order and flushed once no more
+ * requests are buffered. "quit" closes the connection.
+ *
+ * Each connection is served by its own task of a cached thread pool.
+ */
+public class QueryServer implements Closeable {
+
+    public static final String QUIT = "quit";
+
+    private QueryExecutor executor;
+    private ServerSocket serverSocket;
+    private Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private ExecutorService connections = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "digraph-connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Binds the server, use port 0 for an ephemeral port.
+     *
+     * @param diGraph
+     *            the graph to query
+     * @param port
+     *            e.g. 7777
+     * @throws IOException
+     *             if the port cannot be bound
+     */
+    public QueryServer(DiGraph diGraph, int port) throws IOException {
+        this(diGraph, port, null);
+    }
+
+    /**
+     * Binds the server to the given address, use port 0 for an ephemeral port.
+     *
+     * @param bindAddress
+     *            e.g. the loopback address, null for any address
+     */
+    public QueryServer(DiGraph diGraph, int port, InetAddress bindAddress) throws IOException {
+        this.executor = new QueryExecutor(diGraph);
+        this.serverSocket = new ServerSocket(port, 0, bindAddress);
+    }
+
+    /**
+     * Starts accepting connections in a background thread, an I/O error stops the
+     * server and is passed to the thread's uncaught exception handler.
+     */
+    public void start() {
+        Thread acceptor = new Thread(() -> {
+            try {
+                run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, "digraph-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * @return the bound port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections in the calling thread until the server is closed.
+     *
+     * @throws IOException
+     *             if accepting fails, the server is closed then
+     */
+    public void run() throws IOException {
+        try {
+            while (serverSocket.isClosed() == false) {
+                Socket socket = serverSocket.accept();
+                sockets.add(socket);
+                connections.execute(() -> serve(socket));
+            }
+
+        } catch (IOException e) {
+            if (serverSocket.isClosed()) { // closed by close()
+                return;
+            }
+
+            try {
+                close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+                Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.trim().equals(QUIT)) {
+                    break;
+                }
+
+                if (line.isBlank() == false) {
+                    out.write(executor.execute(line));
+                    out.write('\n');
+                }
+
+                // flush only if the client has no further pipelined requests buffered,
+                // also after a blank line that followed a request
+                if (in.ready() == false) {
+                    out.flush();
+                }
+            }
+
+        } catch (IOException e) {
+            // connection reset by the client, nothing to answer anymore
+
+        } finally {
+            sockets.remove(socket);
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes open ones.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : sockets) {
+            socket.close(); // unblocks the pending read
+        }
+        connections.shutdownNow();
+
+        try {
+            connections.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
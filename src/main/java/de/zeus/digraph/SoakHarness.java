@@ -0,0 +1,355 @@
+package de.zeus.digraph;
+
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Runs a mixed query workload against a DiGraph for a long time, e.g. hours,
+ * and samples throughput, latency percentiles, heap and GC per interval, so
+ * leaks and latency drift show up before production.
+ *
+ * The workload per thread is 70% trace latencies of random walks, 25% ingested
+ * latency observations which are folded into the edges once per interval, 4%
+ * exact hop counts and 1% single source shortest paths. Each thread draws from
+ * its own Random derived from the seed.
+ */
+public class SoakHarness {
+
+    private DiGraph diGraph;
+    private IndexedGraph graph;
+    private ExactHopPaths exactHopPaths;
+    private int threads;
+    private long seed;
+
+    private volatile boolean running;
+    private LongAdder errors = new LongAdder();
+
+    public SoakHarness(DiGraph diGraph, int threads, long seed) {
+        if (threads <= 0) {
+            throw new RuntimeException("threads must be positive");
+        }
+
+        this.diGraph = diGraph;
+        this.graph = new IndexedGraph(diGraph);
+        this.exactHopPaths = new ExactHopPaths(graph);
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+    /**
+     * Runs the workload, blocks until the duration has passed.
+     *
+     * @param durationMillis
+     *            e.g. 4 hours
+     * @param intervalMillis
+     *            sample interval, e.g. 60000
+     * @param out
+     *            receives one line per sample, may be null
+     * @return the samples
+     */
+    public Report run(long durationMillis, long intervalMillis, PrintStream out) throws InterruptedException {
+        if (graph.edgeCount() == 0) {
+            throw new RuntimeException("graph has no edges");
+        }
+
+        LatencyIngestor ingestor = new LatencyIngestor(diGraph, intervalMillis, 4);
+        Worker[] workers = new Worker[threads];
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "digraph-soak");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<Sample> samples = new ArrayList<>();
+        long start = System.nanoTime();
+        long[] gc = gc();
+
+        running = true;
+        errors.reset();
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(ingestor, new Random(seed + i));
+            pool.execute(workers[i]);
+        }
+
+        try {
+            long next = intervalMillis;
+            while (next <= durationMillis) {
+                long sleep = next - (System.nanoTime() - start) / 1_000_000;
+                if (sleep > 0) {
+                    Thread.sleep(sleep);
+                }
+
+                LatencyHistogram histogram = new LatencyHistogram();
+                for (Worker worker : workers) {
+                    histogram.add(worker.swap());
+                }
+
+                ingestor.fold();
+                graph.refreshLatencies(); // racy reads of ints only shift a query to the new latency
+
+                long[] now = gc();
+                Sample sample = new Sample(next, histogram, used(), now[0] - gc[0], now[1] - gc[1], errors.sumThenReset());
+                gc = now;
+
+                samples.add(sample);
+                if (out != null) {
+                    out.println(sample);
+                }
+
+                next += intervalMillis;
+            }
+
+        } finally {
+            running = false;
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+            ingestor.close();
+        }
+
+        return new Report(samples);
+    }
+
+    private static long used() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * @return collections and collection time in ms of all collectors
+     */
+    private static long[] gc() {
+        long[] gc = new long[2];
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gc[0] += Math.max(0, bean.getCollectionCount());
+            gc[1] += Math.max(0, bean.getCollectionTime());
+        }
+        return gc;
+    }
+
+    /**
+     * Query loop of one thread, latencies in µs are recorded into a histogram
+     * which is swapped per interval.
+     */
+    private class Worker implements Runnable {
+
+        private LatencyIngestor ingestor;
+        private Random random;
+        private LatencyHistogram histogram = new LatencyHistogram();
+
+        Worker(LatencyIngestor ingestor, Random random) {
+            this.ingestor = ingestor;
+            this.random = random;
+        }
+
+        synchronized LatencyHistogram swap() {
+            LatencyHistogram swapped = histogram;
+            histogram = new LatencyHistogram();
+            return swapped;
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                long start = System.nanoTime();
+
+                try {
+                    query();
+                } catch (RuntimeException e) {
+                    errors.increment();
+                }
+
+                long micros = (System.nanoTime() - start) / 1000;
+                synchronized (this) {
+                    histogram.record((int) Math.min(Integer.MAX_VALUE, micros));
+                }
+            }
+        }
+
+        private void query() {
+            int p = random.nextInt(100);
+            int v = random.nextInt(graph.size());
+
+            if (p < 70) {
+                diGraph.getLatency(walk(v, 2 + random.nextInt(4)));
+
+            } else if (p < 95) {
+                int degree = graph.endEdge(v) - graph.firstEdge(v);
+                if (degree > 0) {
+                    int e = graph.firstEdge(v) + random.nextInt(degree);
+                    int latency = Math.max(0, graph.latency(e) + random.nextInt(11) - 5);
+                    ingestor.record(graph.getName(v), graph.getName(graph.target(e)), latency);
+                }
+
+            } else if (p < 99) {
+                exactHopPaths.count(v, random.nextInt(graph.size()), 3);
+
+            } else {
+                ParallelShortestPath.dijkstra(graph, v);
+            }
+        }
+
+        /**
+         * @return a trace of up to the given number of hops, at least one hop if
+         *         v has an edge
+         */
+        private String walk(int v, int hops) {
+            StringBuilder trace = new StringBuilder(graph.getName(v));
+
+            for (int i = 0; i < hops; i++) {
+                int degree = graph.endEdge(v) - graph.firstEdge(v);
+                if (degree == 0) {
+                    break;
+                }
+
+                v = graph.target(graph.firstEdge(v) + random.nextInt(degree));
+                trace.append('-').append(graph.getName(v));
+            }
+
+            if (trace.indexOf("-") == -1) { // dead end, unknown trace
+                trace.append('-').append(graph.getName(v));
+            }
+
+            return trace.toString();
+        }
+    }
+
+    /**
+     * Measurements of one interval.
+     */
+    public static class Sample {
+
+        private long elapsedMillis;
+        private long operations;
+        private int p50;
+        private int p99;
+        private long heapBytes;
+        private long gcCount;
+        private long gcMillis;
+        private long errors;
+
+        Sample(long elapsedMillis, LatencyHistogram histogram, long heapBytes, long gcCount, long gcMillis,
+                long errors) {
+            this.elapsedMillis = elapsedMillis;
+            this.operations = histogram.getCount();
+            this.p50 = histogram.getPercentile(50);
+            this.p99 = histogram.getPercentile(99);
+            this.heapBytes = heapBytes;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+            this.errors = errors;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public long getOperations() {
+            return operations;
+        }
+
+        /**
+         * @return the median query latency in µs
+         */
+        public int getP50() {
+            return p50;
+        }
+
+        /**
+         * @return the 99th percentile query latency in µs
+         */
+        public int getP99() {
+            return p99;
+        }
+
+        /**
+         * @return used heap at the end of the interval
+         */
+        public long getHeapBytes() {
+            return heapBytes;
+        }
+
+        public long getGcCount() {
+            return gcCount;
+        }
+
+        public long getGcMillis() {
+            return gcMillis;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%8.1fs %10d ops p50=%dus p99=%dus heap=%dMB gc=%d (%dms) errors=%d",
+                    elapsedMillis / 1000.0, operations, p50, p99, heapBytes >> 20, gcCount, gcMillis, errors);
+        }
+    }
+
+    /**
+     * All samples of a run.
+     */
+    public static class Report {
+
+        private List<Sample> samples;
+
+        Report(List<Sample> samples) {
+            this.samples = Collections.unmodifiableList(samples);
+        }
+
+        public List<Sample> getSamples() {
+            return samples;
+        }
+
+        public long getOperations() {
+            return samples.stream().mapToLong(Sample::getOperations).sum();
+        }
+
+        public long getErrors() {
+            return samples.stream().mapToLong(Sample::getErrors).sum();
+        }
+
+        /**
+         * @return p99 of the last quarter of the samples divided by p99 of the
+         *         first quarter, about 1 without drift
+         */
+        public double getLatencyDrift() {
+            return (double) max(Sample::getP99, true) / Math.max(1, max(Sample::getP99, false));
+        }
+
+        /**
+         * Used heap is sampled at arbitrary points of the GC cycle, so the minimum
+         * per quarter approximates the live set.
+         *
+         * @return the minimal used heap of the last quarter minus the one of the
+         *         first quarter
+         */
+        public long getHeapGrowth() {
+            return min(Sample::getHeapBytes, true) - min(Sample::getHeapBytes, false);
+        }
+
+        private List<Sample> quarter(boolean last) {
+            int size = Math.max(1, samples.size() / 4);
+            return last ? samples.subList(samples.size() - size, samples.size()) : samples.subList(0, size);
+        }
+
+        private long max(ToLongFunction<Sample> value, boolean last) {
+            return quarter(last).stream().mapToLong(value).max().orElse(0);
+        }
+
+        private long min(ToLongFunction<Sample> value, boolean last) {
+            return quarter(last).stream().mapToLong(value).min().orElse(0);
+        }
+    }
+
+}
@@ -0,0 +1,360 @@
+package de.zeus.digraph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Strongly connected components of an IndexedGraph and the condensation DAG,
+ * where every component is contracted to a single node.
+ *
+ * Computed with an iterative version of Tarjan's algorithm in O(V+E), the
+ * explicit call stack allows long chains and large graphs without stack
+ * overflow.
+ *
+ * Components are numbered in topological order of the condensation: every
+ * condensation edge leads from a smaller to a larger component id, so "to" can
+ * only be reached from "from" if component(from) <= component(to).
+ */
+public class StronglyConnectedComponents {
+
+    private IndexedGraph graph;
+
+    private int count;
+    private int[] component; // component id per node
+    private int[] sizes; // node count per component
+    private BitSet looped = new BitSet(); // components with a loop, see IndexedGraph#of
+
+    // condensation edges of c: [dagOffsets[c], dagOffsets[c + 1]), sorted by target
+    private int[] dagOffsets;
+    private int[] dagTargets;
+    private int[] dagLatencies; // minimum latency of the contracted edges
+
+    public StronglyConnectedComponents(DiGraph diGraph) {
+        this(new IndexedGraph(diGraph));
+    }
+
+    public StronglyConnectedComponents(IndexedGraph graph) {
+        this.graph = graph;
+
+        tarjan();
+        condense();
+    }
+
+    private void tarjan() {
+        int n = graph.size();
+
+        int[] index = new int[n];
+        Arrays.fill(index, -1);
+        int[] low = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int stackSize = 0;
+
+        // explicit call stack: node and the next edge to visit
+        int[] callNode = new int[n];
+        int[] callEdge = new int[n];
+
+        component = new int[n];
+        int nextIndex = 0;
+        int found = 0; // components are found in reverse topological order
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] != -1) {
+                continue;
+            }
+
+            int depth = 0;
+            callNode[0] = root;
+            callEdge[0] = graph.firstEdge(root);
+            index[root] = low[root] = nextIndex++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int v = callNode[depth];
+
+                if (callEdge[depth] < graph.endEdge(v)) {
+                    int w = graph.target(callEdge[depth]++);
+
+                    if (index[w] == -1) { // descend
+                        depth++;
+                        callNode[depth] = w;
+                        callEdge[depth] = graph.firstEdge(w);
+                        index[w] = low[w] = nextIndex++;
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+
+                // all edges of v visited, v is the root of a component
+                if (low[v] == index[v]) {
+                    int w;
+                    do {
+                        w = stack[--stackSize];
+                        onStack[w] = false;
+                        component[w] = found;
+                    } while (w != v);
+                    found++;
+                }
+
+                // return to the caller
+                depth--;
+                if (depth >= 0) {
+                    int parent = callNode[depth];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+            }
+        }
+
+        // renumber to topological order
+        count = found;
+        sizes = new int[count];
+        for (int v = 0; v < n; v++) {
+            component[v] = count - 1 - component[v];
+            sizes[component[v]]++;
+        }
+    }
+
+    private void condense() {
+        int n = graph.size();
+
+        // nodes grouped by component
+        int[] start = new int[count + 1];
+        for (int v = 0; v < n; v++) {
+            start[component[v] + 1]++;
+        }
+        for (int c = 0; c < count; c++) {
+            start[c + 1] += start[c];
+        }
+        int[] members = new int[n];
+        int[] next = Arrays.copyOf(start, count);
+        for (int v = 0; v < n; v++) {
+            members[next[component[v]]++] = v;
+        }
+
+        // collect the edges between components, deduplicated per source component
+        int[] latency = new int[count];
+        Arrays.fill(latency, -1);
+        int[] targets = new int[count];
+
+        dagOffsets = new int[count + 1];
+        int[] dagTargetsTmp = new int[graph.edgeCount()];
+        int[] dagLatenciesTmp = new int[graph.edgeCount()];
+        int m = 0;
+
+        for (int c = 0; c < count; c++) {
+            int targetCount = 0;
+
+            for (int i = start[c]; i < start[c + 1]; i++) {
+                int v = members[i];
+                for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                    int d = component[graph.target(e)];
+                    if (d == c) { // edge inside the component
+                        if (graph.target(e) == v) {
+                            looped.set(c);
+                        }
+                        continue;
+                    }
+
+                    if (latency[d] == -1) {
+                        targets[targetCount++] = d;
+                        latency[d] = graph.latency(e);
+                    } else {
+                        latency[d] = Math.min(latency[d], graph.latency(e));
+                    }
+                }
+            }
+
+            Arrays.sort(targets, 0, targetCount);
+            for (int i = 0; i < targetCount; i++) {
+                dagTargetsTmp[m] = targets[i];
+                dagLatenciesTmp[m++] = latency[targets[i]];
+                latency[targets[i]] = -1;
+            }
+            dagOffsets[c + 1] = m;
+        }
+
+        dagTargets = Arrays.copyOf(dagTargetsTmp, m);
+        dagLatencies = Arrays.copyOf(dagLatenciesTmp, m);
+    }
+
+    /**
+     * @return the IndexedGraph the components are computed for
+     */
+    public IndexedGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the number of components
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return the component of node v, in topological order
+     */
+    public int component(int v) {
+        return component[v];
+    }
+
+    /**
+     * @return the component of the node, or -1 if unknown
+     */
+    public int component(String name) {
+        int v = graph.getId(name);
+        return v == -1 ? -1 : component[v];
+    }
+
+    /**
+     * @return the number of nodes in component c
+     */
+    public int size(int c) {
+        return sizes[c];
+    }
+
+    /**
+     * @return true if component c contains a cycle, i.e. it has at least two nodes
+     *         or a loop
+     */
+    public boolean isCyclic(int c) {
+        return sizes[c] > 1 || looped.get(c);
+    }
+
+    /**
+     * @return true if the whole graph is acyclic, i.e. every component is a single
+     *         node without a loop
+     */
+    public boolean isAcyclic() {
+        return count == graph.size() && looped.isEmpty();
+    }
+
+    /**
+     * @return the index of the first condensation edge of component c
+     */
+    public int firstDagEdge(int c) {
+        return dagOffsets[c];
+    }
+
+    /**
+     * @return the index after the last condensation edge of component c
+     */
+    public int endDagEdge(int c) {
+        return dagOffsets[c + 1];
+    }
+
+    /**
+     * @return the target component of condensation edge e
+     */
+    public int dagTarget(int e) {
+        return dagTargets[e];
+    }
+
+    /**
+     * @return the minimum latency of the edges contracted into condensation edge e
+     */
+    public int dagLatency(int e) {
+        return dagLatencies[e];
+    }
+
+    /**
+     * @return the number of condensation edges
+     */
+    public int dagEdgeCount() {
+        return dagTargets.length;
+    }
+
+    /**
+     * Constant time pre check: false means "to" is unreachable from "from", true
+     * means it may be reachable.
+     */
+    public boolean mayReach(int from, int to) {
+        return component[from] <= component[to];
+    }
+
+    /**
+     * Marks the components that can reach component "to". Only components between
+     * "from" and "to" in topological order are checked, no others lie on a path
+     * from component "from", so this takes O(components + condensation edges) of
+     * that range.
+     *
+     * @return a bit per component id, empty if from > to
+     */
+    public BitSet reaching(int from, int to) {
+        BitSet reaching = new BitSet(count);
+        if (from > to) {
+            return reaching;
+        }
+
+        reaching.set(to);
+        for (int c = to - 1; c >= from; c--) {
+            for (int e = dagOffsets[c]; e < dagOffsets[c + 1]; e++) {
+                int d = dagTargets[e];
+                if (d > to) { // sorted by target
+                    break;
+                }
+                if (reaching.get(d)) {
+                    reaching.set(c);
+                    break;
+                }
+            }
+        }
+
+        return reaching;
+    }
+
+    /**
+     * Exact reachability on the condensation DAG, only components between the two
+     * in topological order are visited.
+     *
+     * @return true if a path of at least one edge leads from "from" to "to"
+     */
+    public boolean isReachable(String from, String to) {
+        int f = graph.getId(from);
+        int t = graph.getId(to);
+
+        if (f == -1 || t == -1) {
+            return false;
+        }
+
+        int cf = component[f];
+        int ct = component[t];
+
+        if (cf == ct) { // same component, a path exists unless it is a single node
+            return f != t || isCyclic(cf);
+        }
+
+        if (cf > ct) {
+            return false;
+        }
+
+        boolean[] visited = new boolean[ct - cf + 1];
+        int[] queue = new int[ct - cf + 1];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = cf;
+        visited[0] = true;
+
+        while (head < tail) {
+            int c = queue[head++];
+            for (int e = dagOffsets[c]; e < dagOffsets[c + 1]; e++) {
+                int d = dagTargets[e];
+                if (d == ct) {
+                    return true;
+                }
+                if (d < ct && visited[d - cf] == false) {
+                    visited[d - cf] = true;
+                    queue[tail++] = d;
+                }
+            }
+        }
+
+        return false;
+    }
+
+}
@@ -0,0 +1,219 @@
+package de.zeus.digraph;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Deterministic generator of synthetic call graphs for tests at production
+ * scale.
+ *
+ * Edges are streamed into an {@link EdgeSink} as they are generated, so
+ * graphs larger than the heap can be written to a file, see
+ * {@link EdgeListFile}. The same seed always generates the same graph. No
+ * generated graph contains loops or duplicate edges, so every one can be loaded
+ * into a DiGraph. Latencies are exponentially distributed around the mean, at
+ * least 1ms.
+ */
+public class TopologyGenerator {
+
+    // largest int array most VMs allocate
+    private static final int MAX_ENDPOINTS = Integer.MAX_VALUE - 8;
+
+    /**
+     * Receives the generated edges.
+     */
+    public interface EdgeSink {
+
+        void edge(int from, int to, int latency) throws IOException;
+
+    }
+
+    private Random random;
+    private int meanLatency;
+
+    public TopologyGenerator(long seed) {
+        this(seed, 20);
+    }
+
+    /**
+     * @param meanLatency
+     *            mean edge latency in ms, e.g. 20
+     */
+    public TopologyGenerator(long seed, int meanLatency) {
+        this.random = new Random(seed);
+        this.meanLatency = meanLatency;
+    }
+
+    /**
+     * Erdős–Rényi style random graph: every node calls a Poisson distributed
+     * number of uniformly chosen nodes.
+     *
+     * @param n
+     *            number of nodes
+     * @param degree
+     *            average out degree, e.g. 4
+     * @return the number of generated edges
+     */
+    public long erdosRenyi(int n, double degree, EdgeSink sink) throws IOException {
+        Set<Integer> targets = new HashSet<>();
+        long edges = 0;
+
+        for (int v = 0; v < n; v++) {
+            int k = Math.min(poisson(degree), n - 1);
+
+            targets.clear();
+            while (targets.size() < k) {
+                int w = random.nextInt(n);
+                if (w != v && targets.add(w)) {
+                    sink.edge(v, w, latency());
+                    edges++;
+                }
+            }
+        }
+
+        return edges;
+    }
+
+    /**
+     * Barabási–Albert scale free graph: every new node calls m existing nodes,
+     * chosen with a probability proportional to their degree, so a few services
+     * become hubs.
+     *
+     * @param n
+     *            number of nodes, more than m
+     * @param m
+     *            edges per new node, e.g. 3
+     * @return the number of generated edges
+     * @throws IllegalArgumentException
+     *             if the endpoints of n * m edges exceed an array
+     */
+    public long barabasiAlbert(int n, int m, EdgeSink sink) throws IOException {
+        if (m <= 0 || n <= m) {
+            throw new RuntimeException("n must be larger than m > 0");
+        }
+        if (2L * m * n > MAX_ENDPOINTS) {
+            throw new IllegalArgumentException("n * m must be at most " + MAX_ENDPOINTS / 2 + ": " + (long) n * m);
+        }
+
+        // both endpoints of every edge, picking from it is proportional to degree
+        int[] endpoints = new int[2 * m * n];
+        int size = 0;
+        long edges = 0;
+
+        // initial clique of m + 1 nodes
+        for (int v = 1; v <= m; v++) {
+            for (int w = 0; w < v; w++) {
+                sink.edge(v, w, latency());
+                endpoints[size++] = v;
+                endpoints[size++] = w;
+                edges++;
+            }
+        }
+
+        int[] targets = new int[m];
+        for (int v = m + 1; v < n; v++) {
+            int k = 0;
+            while (k < m) {
+                int w = endpoints[random.nextInt(size)];
+                if (contains(targets, k, w) == false) {
+                    targets[k++] = w;
+                }
+            }
+
+            for (int w : targets) {
+                sink.edge(v, w, latency());
+                endpoints[size++] = v;
+                endpoints[size++] = w;
+                edges++;
+            }
+        }
+
+        return edges;
+    }
+
+    /**
+     * Layered microservice mesh: nodes of each layer call fanout nodes of the next
+     * layer, node ids are layer * width + index. With probability cycleDensity a
+     * node additionally calls back into an earlier layer, which creates cycles.
+     *
+     * @param layers
+     *            e.g. 6 for gateway, auth, ... storage
+     * @param width
+     *            nodes per layer
+     * @param fanout
+     *            calls into the next layer per node, at most width
+     * @param cycleDensity
+     *            0 for an acyclic mesh, up to 1
+     * @return the number of generated edges
+     */
+    public long mesh(int layers, int width, int fanout, double cycleDensity, EdgeSink sink) throws IOException {
+        if (fanout > width) {
+            throw new RuntimeException("fanout exceeds width");
+        }
+
+        int[] targets = new int[fanout];
+        long edges = 0;
+
+        for (int layer = 0; layer < layers; layer++) {
+            for (int i = 0; i < width; i++) {
+                int v = layer * width + i;
+
+                if (layer + 1 < layers) {
+                    int k = 0;
+                    while (k < fanout) {
+                        int w = (layer + 1) * width + random.nextInt(width);
+                        if (contains(targets, k, w) == false) {
+                            targets[k++] = w;
+                        }
+                    }
+
+                    Arrays.sort(targets);
+                    for (int w : targets) {
+                        sink.edge(v, w, latency());
+                        edges++;
+                    }
+                }
+
+                if (layer > 0 && random.nextDouble() < cycleDensity) {
+                    sink.edge(v, random.nextInt(layer * width), latency());
+                    edges++;
+                }
+            }
+        }
+
+        return edges;
+    }
+
+    private static boolean contains(int[] values, int size, int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int latency() {
+        return 1 + (int) (-meanLatency * Math.log(1 - random.nextDouble()));
+    }
+
+    private int poisson(double mean) {
+        if (mean > 30) { // normal approximation
+            return (int) Math.max(0, Math.round(mean + Math.sqrt(mean) * random.nextGaussian()));
+        }
+
+        // Knuth
+        double limit = Math.exp(-mean);
+        double p = random.nextDouble();
+        int k = 0;
+        while (p > limit) {
+            p *= random.nextDouble();
+            k++;
+        }
+        return k;
+    }
+
+}
@@ -20,6 +20,18 @@ public class Trace {
      * @throws RuntimeException if the trace is malformed
      */
     public Trace(String trace) {
+        nodes = new LinkedList<String>();
+        nodes.addAll(Arrays.asList(parse(trace)));
+    }
+
+    /**
+     * Splits a trace into its nodes without creating a Trace.
+     *
+     * @param trace e.g. "A-B-C"
+     * @return e.g. ["A", "B", "C"]
+     * @throws RuntimeException if the trace is malformed
+     */
+    public static String[] parse(String trace) {
         int firstDelimiter = trace.indexOf(DELIMITER);
         if (firstDelimiter == -1 // no "-" found
                 || firstDelimiter == 0 // e.g. "-A"
@@ -29,8 +41,7 @@ public class Trace {
             throw new RuntimeException("trace is malformed: " + trace);
         }
 
-        nodes = new LinkedList<String>();
-        nodes.addAll(Arrays.asList(trace.split(DELIMITER)));
+        return trace.split(DELIMITER);
     }
 
     public Trace(List<String> nodes) {
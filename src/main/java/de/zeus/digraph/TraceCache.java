@@ -0,0 +1,284 @@
+package de.zeus.digraph;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Memoizes trace latencies in a trie of trace prefixes.
+ *
+ * Every trie node stores the cumulative latency of its prefix, so a trace
+ * sharing a prefix with earlier ones resumes at the end of the longest cached
+ * prefix instead of walking {@link Node#getLatency(Trace)} from the first hop.
+ * Trie children are keyed by interned node ids.
+ *
+ * The trie holds at most maxEntries prefixes, the least recently used ones are
+ * evicted. Ancestors are always touched after their descendants, so the least
+ * recently used prefix is a leaf. When the latency of an edge changes, every
+ * prefix containing it is dropped, see {@link Edge#addListener}.
+ */
+public class TraceCache implements Closeable, Edge.LatencyListener {
+
+    private DiGraph diGraph;
+    private int maxEntries;
+
+    private Map<String, Integer> ids = new HashMap<>();
+    private Prefix root = new Prefix(null, -1, 0, null);
+
+    // all prefixes in access order, least recently used first
+    private LinkedHashMap<Prefix, Prefix> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // prefixes ending with an edge, by edge
+    private Map<Edge, Set<Prefix>> dependents = new IdentityHashMap<>();
+    private Set<Edge> observed = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private long cachedHops;
+    private long computedHops;
+
+    /**
+     * @param maxEntries
+     *            maximum number of cached prefixes, e.g. 100000
+     */
+    public TraceCache(DiGraph diGraph, int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new RuntimeException("maxEntries must be positive");
+        }
+
+        this.diGraph = diGraph;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Calculates the latency of a trace, same semantics as
+     * {@link DiGraph#getLatency(String)}.
+     *
+     * @param sTrace
+     *            e.g. "A-B-C"
+     * @return the latency of the trace or -1 if no such trace exists
+     * @throws RuntimeException
+     *             on malformed trace.
+     */
+    public synchronized int getLatency(String sTrace) {
+        String[] nodes = Trace.parse(sTrace);
+        Prefix[] path = new Prefix[nodes.length];
+
+        // longest cached prefix
+        Prefix prefix = root;
+        int i = 0;
+        while (i < nodes.length) {
+            Integer id = ids.get(nodes[i]);
+            Prefix child = id == null ? null : prefix.child(id);
+            if (child == null) {
+                break;
+            }
+
+            path[i++] = prefix = child;
+        }
+        cachedHops += Math.max(0, i - 1);
+
+        // compute and cache the remaining hops
+        int latency = -1;
+        if (i == nodes.length) {
+            latency = prefix.latency;
+
+        } else {
+            latency = extend(nodes, path, i);
+        }
+
+        // touch deepest first, so ancestors are more recently used than descendants
+        for (int j = path.length - 1; j >= 0; j--) {
+            if (path[j] != null) {
+                entries.get(path[j]);
+            }
+        }
+
+        evict();
+        return latency;
+    }
+
+    private int extend(String[] nodes, Prefix[] path, int i) {
+        Prefix prefix = i == 0 ? null : path[i - 1];
+        long latency = i == 0 ? 0 : prefix.latency;
+
+        for (int j = Math.max(i, 1); j < nodes.length; j++) {
+            Edge edge = diGraph.getEdge(nodes[j - 1], nodes[j]);
+            if (edge == null) { // trace does not exist
+                return -1;
+            }
+            computedHops++;
+
+            // listen before reading the latency, so no change is missed
+            if (observed.add(edge)) {
+                edge.addListener(this);
+            }
+
+            // the first node is only cached once its first edge exists
+            if (prefix == null) {
+                prefix = add(root, nodes[0], 0, null);
+                path[0] = prefix;
+            }
+
+            latency += edge.getLatency();
+            prefix = add(prefix, nodes[j], latency, edge);
+            path[j] = prefix;
+        }
+
+        return (int) latency;
+    }
+
+    private Prefix add(Prefix parent, String name, long latency, Edge edge) {
+        int id = ids.computeIfAbsent(name, k -> ids.size());
+        Prefix prefix = new Prefix(parent, id, (int) latency, edge);
+        parent.addChild(prefix);
+        entries.put(prefix, prefix);
+
+        if (edge != null) {
+            dependents.computeIfAbsent(edge, e -> new HashSet<>()).add(prefix);
+        }
+
+        return prefix;
+    }
+
+    private void evict() {
+        while (entries.size() > maxEntries) {
+            Prefix leaf = entries.keySet().iterator().next();
+            leaf.parent.removeChild(leaf);
+            remove(leaf);
+        }
+    }
+
+    /**
+     * Drops every prefix containing the edge.
+     */
+    @Override
+    public synchronized void latencyChanged(Edge edge) {
+        Set<Prefix> prefixes = dependents.remove(edge);
+        if (prefixes == null) {
+            return;
+        }
+
+        for (Prefix prefix : prefixes) {
+            if (prefix.parent != null) { // not yet removed with an ancestor
+                prefix.parent.removeChild(prefix);
+                remove(prefix);
+            }
+        }
+    }
+
+    /**
+     * Removes the prefix and its descendants from the indexes.
+     */
+    private void remove(Prefix prefix) {
+        for (int c = 0; c < prefix.childCount; c++) {
+            remove(prefix.children[c]);
+        }
+
+        entries.remove(prefix);
+        if (prefix.edge != null) {
+            Set<Prefix> prefixes = dependents.get(prefix.edge);
+            if (prefixes != null && prefixes.remove(prefix) && prefixes.isEmpty()) {
+                dependents.remove(prefix.edge);
+            }
+        }
+        prefix.parent = null;
+    }
+
+    /**
+     * @return the number of cached prefixes
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of hops answered from the cache
+     */
+    public synchronized long getCachedHops() {
+        return cachedHops;
+    }
+
+    /**
+     * @return the number of hops looked up in the graph
+     */
+    public synchronized long getComputedHops() {
+        return computedHops;
+    }
+
+    /**
+     * Unregisters from all edges and clears the cache.
+     */
+    @Override
+    public synchronized void close() {
+        for (Edge edge : observed) {
+            edge.removeListener(this);
+        }
+
+        observed.clear();
+        dependents.clear();
+        entries.clear();
+        root = new Prefix(null, -1, 0, null);
+    }
+
+    /**
+     * A cached trace prefix, identified by its path from the root.
+     */
+    private static class Prefix {
+
+        private Prefix parent;
+        private int id;
+        private int latency;
+        private Edge edge; // last edge of the prefix
+
+        private int[] childIds;
+        private Prefix[] children;
+        private int childCount;
+
+        Prefix(Prefix parent, int id, int latency, Edge edge) {
+            this.parent = parent;
+            this.id = id;
+            this.latency = latency;
+            this.edge = edge;
+        }
+
+        Prefix child(int id) {
+            for (int c = 0; c < childCount; c++) {
+                if (childIds[c] == id) {
+                    return children[c];
+                }
+            }
+            return null;
+        }
+
+        void addChild(Prefix child) {
+            if (children == null) {
+                childIds = new int[2];
+                children = new Prefix[2];
+            } else if (childCount == children.length) {
+                childIds = Arrays.copyOf(childIds, childCount * 2);
+                children = Arrays.copyOf(children, childCount * 2);
+            }
+
+            childIds[childCount] = child.id;
+            children[childCount++] = child;
+        }
+
+        void removeChild(Prefix child) {
+            for (int c = 0; c < childCount; c++) {
+                if (children[c] == child) {
+                    childCount--;
+                    childIds[c] = childIds[childCount];
+                    children[c] = children[childCount];
+                    children[childCount] = null;
+                    return;
+                }
+            }
+        }
+    }
+
+}
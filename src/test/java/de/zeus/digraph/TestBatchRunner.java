@@ -0,0 +1,43 @@
+package de.zeus.digraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+public class TestBatchRunner {
+
+    private static DiGraph diGraph = new DiGraph("AB5, BC4, CD8, DC8, DE6, AD5, CE2, EB3, AE7");
+
+    @Test
+    public void testRun() throws IOException {
+        BatchRunner runner = new BatchRunner(diGraph);
+        StringWriter out = new StringWriter();
+
+        String queries = "latency A-B-C\n" //
+                + "# comment\n" //
+                + "\n" //
+                + "count-exact A C 4\n" //
+                + "shortest B B\n" //
+                + "shortest C A\n" //
+                + "foo\n";
+
+        assertEquals(5, runner.run(new BufferedReader(new StringReader(queries)), out));
+
+        String[] results = out.toString().split("\n");
+        assertEquals(5, results.length);
+        assertEquals("9", results[0]);
+        assertEquals("3", results[1]);
+        assertEquals("9", results[2]);
+        assertEquals("NO SUCH TRACE", results[3]);
+        assertTrue(results[4].startsWith(QueryExecutor.ERROR));
+
+        assertTrue(runner.getStatistics().startsWith("5 queries in "));
+    }
+
+}
@@ -0,0 +1,115 @@
+package de.zeus.digraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class TestCompressedGraph {
+
+    private static DiGraph diGraph = new DiGraph("AB5, BC4, CD8, DC8, DE6, AD5, CE2, EB3, AE7");
+
+    /**
+     * Approximate bytes per edge of Node.edges with compressed oops: HashMap.Node
+     * (32), Edge (32) and 1 / 0.75 table slots (~5).
+     */
+    private static final int HASH_MAP_BYTES_PER_EDGE = 32 + 32 + 5;
+
+    private static void assertSameAdjacency(IndexedGraph graph, CompressedGraph compressed) {
+        assertEquals(graph.size(), compressed.size());
+        assertEquals(graph.edgeCount(), compressed.edgeCount());
+
+        CompressedGraph.Cursor cursor = compressed.cursor();
+        for (int v = 0; v < graph.size(); v++) {
+            assertEquals(v, compressed.getId(graph.getName(v)));
+            assertEquals(graph.endEdge(v) - graph.firstEdge(v), compressed.degree(v));
+
+            cursor.reset(v);
+            for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                assertTrue(cursor.next());
+                assertEquals(graph.target(e), cursor.target());
+                assertEquals(graph.latency(e), cursor.latency());
+            }
+            assertFalse(cursor.next());
+        }
+    }
+
+    @Test
+    public void testAdjacency() {
+        assertSameAdjacency(new IndexedGraph(diGraph), new CompressedGraph(diGraph));
+        assertEquals(-1, new CompressedGraph(diGraph).getId("X"));
+    }
+
+    @Test
+    public void testWideLatencies() {
+        DiGraph graph = new DiGraph();
+        graph.connect("A", "B", Integer.MAX_VALUE);
+        graph.connect("A", "C", 0);
+        graph.connect("C", "A", 123_456_789);
+
+        assertSameAdjacency(new IndexedGraph(graph), new CompressedGraph(graph));
+    }
+
+    @Test
+    public void testShortestLatency() {
+        CompressedGraph compressed = new CompressedGraph(diGraph);
+
+        assertEquals(9, compressed.getShortestLatency("A", "C"));
+        assertEquals(9, compressed.getShortestLatency("B", "B"));
+        assertEquals(7, compressed.getShortestLatency("A", "E"));
+        assertEquals(-1, compressed.getShortestLatency("C", "A"));
+        assertEquals(-1, compressed.getShortestLatency("A", "A"));
+        assertEquals(-1, compressed.getShortestLatency("X", "A"));
+    }
+
+    /**
+     * Reports bytes per edge and decoding speed on a synthetic graph.
+     */
+    @Test
+    public void testBytesPerEdge() {
+        IndexedGraph graph = TestParallelShortestPath.synthetic(200_000, 4, 9);
+        CompressedGraph compressed = new CompressedGraph(graph);
+        assertSameAdjacency(graph, compressed);
+
+        double bytesPerEdge = (double) compressed.getAdjacencyBytes() / compressed.edgeCount();
+
+        // full scan of all edges, best of a few runs
+        long indexedNanos = Long.MAX_VALUE;
+        long compressedNanos = Long.MAX_VALUE;
+        long expected = 0;
+        long actual = 0;
+        CompressedGraph.Cursor cursor = compressed.cursor();
+
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            expected = 0;
+            for (int v = 0; v < graph.size(); v++) {
+                for (int e = graph.firstEdge(v); e < graph.endEdge(v); e++) {
+                    expected += graph.target(e) + graph.latency(e);
+                }
+            }
+            indexedNanos = Math.min(indexedNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            actual = 0;
+            for (int v = 0; v < compressed.size(); v++) {
+                cursor.reset(v);
+                while (cursor.next()) {
+                    actual += cursor.target() + cursor.latency();
+                }
+            }
+            compressedNanos = Math.min(compressedNanos, System.nanoTime() - start);
+        }
+        assertEquals(expected, actual);
+
+        System.out.printf(
+                "CompressedGraph: %d edges, %.2f bytes/edge (IndexedGraph ~20, HashMap<String, Edge> ~%d), "
+                        + "scan %.1fns/edge (IndexedGraph %.1fns/edge)%n",
+                compressed.edgeCount(), bytesPerEdge, HASH_MAP_BYTES_PER_EDGE,
+                (double) compressedNanos / compressed.edgeCount(), (double) indexedNanos / graph.edgeCount());
+
+        assertTrue(bytesPerEdge < 8);
+    }
+
+}
@@ -0,0 +1,145 @@
+package de.zeus.digraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class TestContractionHierarchy {
+
+    private static DiGraph diGraph = new DiGraph("AB5, BC4, CD8, DC8, DE6, AD5, CE2, EB3, AE7");
+
+    /**
+     * Grid of width * width nodes named "x,y", connected to the right and down
+     * neighbors in both directions with random latencies.
+     */
+    private static DiGraph grid(int width, long seed) {
+        Random random = new Random(seed);
+        DiGraph graph = new DiGraph();
+
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < width; y++) {
+                if (x + 1 < width) {
+                    graph.connect(x + "," + y, (x + 1) + "," + y, 1 + random.nextInt(100));
+                    graph.connect((x + 1) + "," + y, x + "," + y, 1 + random.nextInt(100));
+                }
+                if (y + 1 < width && random.nextInt(4) != 0) { // some one way streets
+                    graph.connect(x + "," + y, x + "," + (y + 1), 1 + random.nextInt(100));
+                }
+                if (y + 1 < width && random.nextInt(4) != 0) {
+                    graph.connect(x + "," + (y + 1), x + "," + y, 1 + random.nextInt(100));
+                }
+            }
+        }
+
+        return graph;
+    }
+
+    @Test
+    public void testShortestLatency() {
+        ContractionHierarchy ch = new ContractionHierarchy(diGraph);
+
+        assertEquals(9, ch.getShortestLatency("A", "C"));
+        assertEquals(9, ch.getShortestLatency("B", "B"));
+        assertEquals(7, ch.getShortestLatency("A", "E"));
+        assertEquals(-1, ch.getShortestLatency("C", "A"));
+        assertEquals(-1, ch.getShortestLatency("A", "A"));
+        assertEquals(-1, ch.getShortestLatency("X", "A"));
+    }
+
+    @Test
+    public void testCustomize() {
+        DiGraph graph = new DiGraph("AB5, BC4, CD8, DC8, DE6, AD5, CE2, EB3, AE7");
+        ContractionHierarchy ch = new ContractionHierarchy(graph);
+
+        graph.getEdge("B", "C").setLatency(20);
+        assertEquals(9, ch.getShortestLatency("A", "C")); // not customized yet
+
+        ch.customize();
+        assertEquals(graph.getShortestLatency("A", "C"), ch.getShortestLatency("A", "C"));
+        assertEquals(graph.getShortestLatency("B", "B"), ch.getShortestLatency("B", "B"));
+    }
+
+    @Test
+    public void testAgainstDijkstra() {
+        DiGraph graph = grid(12, 3);
+        ContractionHierarchy ch = new ContractionHierarchy(graph);
+        Random random = new Random(5);
+
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 200; i++) {
+                String from = random.nextInt(12) + "," + random.nextInt(12);
+                String to = random.nextInt(12) + "," + random.nextInt(12);
+                assertEquals(graph.getShortestLatency(from, to), ch.getShortestLatency(from, to), from + "->" + to);
+            }
+
+            // change all latencies and re-weight without reordering
+            for (Node node : graph.getNodes()) {
+                for (Edge edge : node.getEdges().values()) {
+                    edge.setLatency(1 + random.nextInt(100));
+                }
+            }
+            ch.customize();
+        }
+    }
+
+    /**
+     * Compares the nodes a query visits with the nodes Dijkstra on the
+     * IndexedGraph settles, and prints the query times of both and of
+     * DiGraph.getShortestLatency.
+     */
+    @Test
+    public void testQueryTime() {
+        int width = 40;
+        DiGraph graph = grid(width, 7);
+        IndexedGraph indexed = new IndexedGraph(graph);
+        ContractionHierarchy ch = new ContractionHierarchy(indexed);
+        Random random = new Random(1);
+
+        int queries = 10_000;
+        String[] from = new String[queries];
+        String[] to = new String[queries];
+        for (int i = 0; i < queries; i++) {
+            from[i] = random.nextInt(width) + "," + random.nextInt(width);
+            to[i] = random.nextInt(width) + "," + random.nextInt(width);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            ch.getShortestLatency(from[i], to[i]);
+        }
+        double chMicros = (System.nanoTime() - start) / 1e3 / queries;
+
+        long settled = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < 1_000; i++) {
+            int s = indexed.getId(from[i]);
+            int[] dist = ParallelShortestPath.dijkstra(indexed, s);
+            ParallelShortestPath.shortestLatency(indexed, dist, s, indexed.getId(to[i]));
+
+            settled += Arrays.stream(dist).filter(d -> d != Integer.MAX_VALUE).count();
+        }
+        double dijkstraMicros = (System.nanoTime() - start) / 1e3 / 1_000;
+
+        start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(graph.getShortestLatency(from[i], to[i]), ch.getShortestLatency(from[i], to[i]));
+        }
+        double diGraphMicros = (System.nanoTime() - start) / 1e3 / 10;
+
+        System.out.printf(
+                "ContractionHierarchy: %d nodes, %d shortcuts, search space %.0f nodes, dijkstra settles %d nodes, "
+                        + "preprocessing %.1fms, customization %.1fms, query %.1fus, array dijkstra %.1fus, "
+                        + "DiGraph %.0fus%n",
+                indexed.size(), ch.getShortcutCount(), ch.getSearchSpace(), settled / 1_000,
+                ch.getPreprocessingNanos() / 1e6, ch.getCustomizationNanos() / 1e6, chMicros, dijkstraMicros,
+                diGraphMicros);
+
+        // a query searches upwards from both ends, deterministic unlike the timings
+        assertTrue(2 * ch.getSearchSpace() * 4 < settled / 1_000);
+    }
+
+}
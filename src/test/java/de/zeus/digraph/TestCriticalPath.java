@@ -0,0 +1,88 @@
+package de.zeus.digraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class TestCriticalPath {
+
+    // fan-out: A calls B and C, both call D, D calls E
+    private static DiGraph tree = new DiGraph("AB5, AC3, BD2, CD10, DE1");
+
+    @Test
+    public void testCriticalPath() {
+        CriticalPath path = tree.getCriticalPath("A");
+
+        assertFalse(path.hasCycle());
+        assertEquals(14, path.getLatency());
+        assertEquals("A-C-D-E", path.getPath().toString());
+    }
+
+    @Test
+    public void testSlack() {
+        CriticalPath path = tree.getCriticalPath("A");
+
+        assertEquals(0, path.getSlack("A"));
+        assertEquals(0, path.getSlack("C"));
+        assertEquals(0, path.getSlack("E"));
+        assertEquals(6, path.getSlack("B")); // A-B-D-E takes 8 of 14
+        assertEquals(-1, path.getSlack("X"));
+    }
+
+    /**
+     * Latency updates are visible although the snapshot is cached.
+     */
+    @Test
+    public void testLatencyUpdate() {
+        DiGraph diGraph = new DiGraph("AB5, BC4, AC2");
+        assertEquals("A-B-C", diGraph.getCriticalPath("A").getPath().toString());
+
+        diGraph.getEdge("A", "C").setLatency(20);
+        assertEquals(20, diGraph.getCriticalPath("A").getLatency());
+        assertEquals("A-C", diGraph.getCriticalPath("A").getPath().toString());
+    }
+
+    @Test
+    public void testSubTree() {
+        CriticalPath path = tree.getCriticalPath("B");
+
+        assertEquals(3, path.getLatency());
+        assertEquals("B-D-E", path.getPath().toString());
+        assertEquals(-1, path.getSlack("A")); // not reachable from B
+    }
+
+    @Test
+    public void testWholeGraph() {
+        CriticalPath path = new CriticalPath(new IndexedGraph(new DiGraph("AB5, BC4, XC20")));
+
+        assertEquals(20, path.getLatency());
+        assertEquals("X-C", path.getPath().toString());
+        assertEquals(11, path.getSlack("A"));
+    }
+
+    @Test
+    public void testBlockingCycle() {
+        CriticalPath path = new DiGraph("AB5, BC4, CD8, DC8, DE6, AD5, CE2, EB3, AE7").getCriticalPath("A");
+
+        assertTrue(path.hasCycle());
+        assertEquals("C-D-C", path.getBlockingCycle().toString());
+        assertTrue(path.isBlocked("B"));
+        assertFalse(path.isBlocked("A"));
+        assertEquals(0, path.getLatency()); // only A is acyclic
+        assertNull(path.getPath());
+    }
+
+    @Test
+    public void testBehindCycle() {
+        CriticalPath path = new DiGraph("AB1, BC1, CB1, CD1, AE4").getCriticalPath("A");
+
+        assertEquals("B-C-B", path.getBlockingCycle().toString());
+        assertTrue(path.isBlocked("D"));
+        assertEquals(4, path.getLatency());
+        assertEquals("A-E", path.getPath().toString());
+    }
+
+}
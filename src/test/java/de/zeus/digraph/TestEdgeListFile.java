@@ -0,0 +1,79 @@
+package de.zeus.digraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestEdgeListFile {
+
+    @TempDir
+    Path dir;
+
+    private static List<String> generate(TopologyGenerator.EdgeSink sink) throws IOException {
+        List<String> edges = new ArrayList<>();
+        new TopologyGenerator(5).erdosRenyi(1_000, 3, (from, to, latency) -> {
+            edges.add(from + " " + to + " " + latency);
+            sink.edge(from, to, latency);
+        });
+        return edges;
+    }
+
+    private static List<String> read(Path path) throws IOException {
+        List<String> edges = new ArrayList<>();
+        EdgeListFile.read(path, (from, to, latency) -> edges.add(from + " " + to + " " + latency));
+        return edges;
+    }
+
+    @Test
+    public void testText() throws IOException {
+        Path path = dir.resolve("graph.txt");
+        List<String> edges;
+        try (EdgeListFile.Output out = EdgeListFile.open(path, false)) {
+            edges = generate(out);
+        }
+
+        assertEquals(edges, Files.readAllLines(path));
+        assertEquals(edges, read(path));
+    }
+
+    @Test
+    public void testBinary() throws IOException {
+        Path path = dir.resolve("graph.bin");
+        List<String> edges;
+        try (EdgeListFile.Output out = EdgeListFile.open(path, true)) {
+            edges = generate(out);
+        }
+
+        assertEquals(4 + 12L * edges.size(), Files.size(path));
+        assertEquals(edges, read(path));
+    }
+
+    @Test
+    public void testDiGraph() throws IOException {
+        Path path = dir.resolve("graph.txt");
+        Files.writeString(path, "0 1 5\n1 2 4\n\n2 0 3\n");
+
+        DiGraph diGraph = EdgeListFile.toDiGraph(path);
+        assertEquals(3, diGraph.getNodes().size());
+        assertEquals(12, diGraph.getLatency("0-1-2-0"));
+    }
+
+    @Test
+    public void testMalformed() throws IOException {
+        Path path = dir.resolve("graph.txt");
+        Files.writeString(path, "0 1 5\n1 2\n");
+
+        IOException e = assertThrows(IOException.class, () -> read(path));
+        assertTrue(e.getMessage().contains("1 2"));
+    }
+
+}
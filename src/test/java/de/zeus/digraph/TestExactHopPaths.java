@@ -0,0 +1,142 @@
+package de.zeus.digraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+public class TestExactHopPaths {
+
+    private static DiGraph diGraph = new DiGraph("AB5, BC4, CD8, DC8, DE6, AD5, CE2, EB3, AE7");
+    private static IndexedGraph graph = new IndexedGraph(diGraph);
+    private static ExactHopPaths paths = new ExactHopPaths(graph);
+
+    @Test
+    public void testPaths() {
+        Set<String> traces = paths.getPaths("A", "C", 4).stream().map(Trace::toString).collect(Collectors.toSet());
+
+        assertEquals(Set.of("A-B-C-D-C", "A-D-C-D-C", "A-D-E-B-C"), traces);
+        assertNull(paths.getPaths("X", "C", 4));
+        assertTrue(paths.getPaths("C", "A", 4).isEmpty());
+        assertTrue(paths.getPaths("A", "C", 0).isEmpty());
+    }
+
+    @Test
+    public void testCount() {
+        int a = graph.getId("A");
+        int c = graph.getId("C");
+
+        assertEquals(3, paths.count(a, c, 4));
+        assertEquals(0, paths.count(c, a, 4));
+        assertEquals(3, diGraph.countPathsExact("A", "C", 4));
+        assertEquals(-1, diGraph.countPathsExact("A", "X", 4));
+    }
+
+    /**
+     * Enumeration, counting and the filtered getPaths agree for all pairs.
+     */
+    @Test
+    public void testAgainstGetPaths() {
+        for (Node from : diGraph.getNodes()) {
+            for (Node to : diGraph.getNodes()) {
+                for (int hops = 1; hops <= 7; hops++) {
+                    int exact = hops;
+                    List<String> expected = diGraph.getPaths(from.getName(), to.getName(), hops).stream()
+                            .filter(p -> p.getNodes().size() == exact + 1).map(Trace::toString).sorted()
+                            .collect(Collectors.toList());
+                    List<String> actual = diGraph.getPathsExact(from.getName(), to.getName(), hops).stream()
+                            .map(Trace::toString).sorted().collect(Collectors.toList());
+
+                    assertEquals(expected, actual);
+                    assertEquals(expected.size(), paths.count(graph.getId(from.getName()), graph.getId(to.getName()),
+                            hops));
+                }
+            }
+        }
+    }
+
+    /**
+     * Every path is visited once and has the exact length.
+     */
+    @Test
+    public void testVisitor() {
+        Set<String> visited = new HashSet<>();
+        int b = graph.getId("B");
+
+        long count = paths.enumerate(b, b, 12, (path, length) -> {
+            assertEquals(13, length);
+            assertEquals(b, path[0]);
+            assertEquals(b, path[12]);
+
+            StringBuilder trace = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                trace.append(path[i]).append('-');
+            }
+            assertTrue(visited.add(trace.toString()));
+        });
+
+        assertEquals(visited.size(), count);
+        assertEquals(count, paths.count(b, b, 12));
+    }
+
+    /**
+     * The cached snapshot is rebuilt after structural changes.
+     */
+    @Test
+    public void testSnapshotInvalidation() {
+        DiGraph diGraph = new DiGraph("AB1, BC1");
+        assertEquals(1, diGraph.countPathsExact("A", "C", 2));
+        assertEquals(-1, diGraph.countPathsExact("A", "D", 3));
+
+        diGraph.connect("A", "D", 1);
+        diGraph.connect("D", "C", 1);
+        assertEquals(2, diGraph.countPathsExact("A", "C", 2));
+        assertEquals(2, diGraph.getPathsExact("A", "C", 2).size());
+
+        diGraph.connect("C", "D", 1);
+        assertEquals(2, diGraph.countPathsExact("A", "D", 3)); // A-B-C-D, A-D-C-D
+    }
+
+    /**
+     * count-exact through the QueryExecutor on a sparse graph, against the old
+     * getPaths and filter.
+     */
+    @Test
+    public void testQuerySpeed() throws IOException {
+        DiGraph diGraph = new DiGraph();
+        new TopologyGenerator(17).erdosRenyi(100_000, 3,
+                (from, to, latency) -> diGraph.connect(String.valueOf(from), String.valueOf(to), latency));
+        QueryExecutor executor = new QueryExecutor(diGraph);
+
+        double exact = 0;
+        double filtered = 0;
+        int queries = 20_000;
+        for (int round = 0; round < 2; round++) { // the first round warms up
+            long start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                executor.execute("count-exact " + i + " " + (i + 1) + " 3");
+            }
+            exact = (System.nanoTime() - start) / 1e3 / queries;
+
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                List<Trace> all = diGraph.getPaths(String.valueOf(i), String.valueOf(i + 1), 3);
+                if (all != null) { // isolated nodes do not exist
+                    all.stream().filter(p -> p.getNodes().size() == 4).count();
+                }
+            }
+            filtered = (System.nanoTime() - start) / 1e3 / queries;
+        }
+
+        System.out.printf("ExactHopPaths: 100000 nodes, count-exact %.1fus/query, getPaths and filter %.1fus/query%n",
+                exact, filtered);
+    }
+
+}
@@ -0,0 +1,213 @@
+package de.zeus.digraph;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+public class TestGraphAnalytics {
+
+    private static ForkJoinPool pool = new ForkJoinPool(4);
+
+    @Test
+    public void testDegreeDistribution() {
+        GraphAnalytics analytics = new GraphAnalytics(
+                new IndexedGraph(new DiGraph("AB5, BC4, CD8, DC8, DE6, AD5, CE2, EB3, AE7")));
+
+        // out: A 3, B 1, C 2, D 2, E 1
+        assertArrayEquals(new long[] { 0, 2, 2, 1 }, analytics.getOutDegreeDistribution());
+        // in: A 0, B 2, C 2, D 2, E 3
+        assertArrayEquals(new long[] { 1, 0, 3, 1 }, analytics.getInDegreeDistribution());
+    }
+
+    /**
+     * A-B and A-C-B are both shortest paths, although B is settled before C.
+     */
+    @Test
+    public void testZeroLatency() {
+        GraphAnalytics.Result result = new GraphAnalytics(new IndexedGraph(new DiGraph("AB1, AC1, CB0"))).analyze(pool);
+
+        assertEquals(0, result.getBetweenness("A"));
+        assertEquals(0, result.getBetweenness("B"));
+        assertEquals(0.5, result.getBetweenness("C"));
+    }
+
+    /**
+     * Zero latency cycles, also through the source, give finite results.
+     */
+    @Test
+    public void testZeroLatencyCycle() {
+        GraphAnalytics.Result result = new GraphAnalytics(
+                new IndexedGraph(new DiGraph("AB1, AC1, BC0, CB0, BD0, DA0"))).analyze(pool);
+
+        for (String name : new String[] { "A", "B", "C", "D" }) {
+            double betweenness = result.getBetweenness(name);
+            assertTrue(Double.isFinite(betweenness) && betweenness >= 0, name + " " + betweenness);
+        }
+    }
+
+    /**
+     * Matches betweenness from enumerating all simple paths on small random graphs
+     * with many zero latency edges, from larger to smaller ids to avoid zero
+     * latency cycles. The heap breaks ties by id, so successors settle first.
+     */
+    @Test
+    public void testZeroLatencyAgainstEnumeration() {
+        Random random = new Random(5);
+
+        for (int round = 0; round < 50; round++) {
+            int n = 7;
+            List<int[]> edges = new ArrayList<>();
+            for (int u = 0; u < n; u++) {
+                for (int v = 0; v < n; v++) {
+                    if (u != v && random.nextInt(3) == 0) {
+                        edges.add(new int[] { u, v, u > v ? random.nextInt(3) : 1 + random.nextInt(2) });
+                    }
+                }
+            }
+
+            int[] from = edges.stream().mapToInt(e -> e[0]).toArray();
+            int[] to = edges.stream().mapToInt(e -> e[1]).toArray();
+            int[] latency = edges.stream().mapToInt(e -> e[2]).toArray();
+            IndexedGraph graph = IndexedGraph.of(n, from, to, latency);
+            GraphAnalytics.Result result = new GraphAnalytics(graph).analyze(pool);
+
+            double[] expected = new double[n];
+            for (int s = 0; s < n; s++) {
+                for (int t = 0; t < n; t++) {
+                    if (s == t) {
+                        continue;
+                    }
+
+                    List<int[]> paths = new ArrayList<>();
+                    int[] path = new int[n];
+                    path[0] = s;
+                    enumerate(graph, path, 1, t, 0, new boolean[n], paths);
+
+                    int min = paths.stream().mapToInt(p -> p[0]).min().orElse(-1);
+                    List<int[]> shortest = paths.stream().filter(p -> p[0] == min).collect(Collectors.toList());
+                    for (int[] p : shortest) {
+                        for (int i = 2; i < p.length - 1; i++) { // interior nodes
+                            expected[p[i]] += 1.0 / shortest.size();
+                        }
+                    }
+                }
+            }
+
+            for (int v = 0; v < n; v++) {
+                assertEquals(expected[v], result.getBetweenness(v), 1e-9, "round " + round + " node " + v);
+            }
+        }
+    }
+
+    /**
+     * Collects the simple paths to t as [latency, nodes...].
+     */
+    private static void enumerate(IndexedGraph graph, int[] path, int length, int t, int latency, boolean[] visited,
+            List<int[]> paths) {
+        int u = path[length - 1];
+        if (u == t) {
+            int[] found = new int[length + 1];
+            found[0] = latency;
+            System.arraycopy(path, 0, found, 1, length);
+            paths.add(found);
+            return;
+        }
+
+        visited[u] = true;
+        for (int e = graph.firstEdge(u); e < graph.endEdge(u); e++) {
+            int w = graph.target(e);
+            if (visited[w] == false) {
+                path[length] = w;
+                enumerate(graph, path, length + 1, t, latency + graph.latency(e), visited, paths);
+            }
+        }
+        visited[u] = false;
+    }
+
+    @Test
+    public void testChain() {
+        // A -> B -> C -> D: B is on A-C and A-D, C on A-D and B-D
+        GraphAnalytics analytics = new GraphAnalytics(new IndexedGraph(new DiGraph("AB1, BC1, CD1")));
+        GraphAnalytics.Result result = analytics.analyze(pool);
+
+        assertEquals(0, result.getBetweenness("A"));
+        assertEquals(2, result.getBetweenness("B"));
+        assertEquals(2, result.getBetweenness("C"));
+        assertEquals(0, result.getBetweenness("D"));
+
+        // latencies 1, 2, 3, 1, 2, 1
+        assertEquals(6, result.getLatencies().getCount());
+        assertEquals(1, result.getLatencies().getPercentile(50));
+        assertEquals(3, result.getLatencies().getPercentile(100));
+    }
+
+    @Test
+    public void testSplitShortestPaths() {
+        // two shortest paths from A to D, each middle node gets half
+        GraphAnalytics analytics = new GraphAnalytics(new IndexedGraph(new DiGraph("AB1, AC1, BD1, CD1, AD5")));
+        GraphAnalytics.Result result = analytics.analyze(pool);
+
+        assertEquals(0.5, result.getBetweenness("B"), 1e-9);
+        assertEquals(0.5, result.getBetweenness("C"), 1e-9);
+    }
+
+    @Test
+    public void testHotSpots() {
+        // every caller goes through the gateway
+        DiGraph diGraph = new DiGraph();
+        for (int i = 0; i < 5; i++) {
+            diGraph.connect("client" + i, "gateway", 1);
+            diGraph.connect("gateway", "service" + i, 1);
+        }
+
+        GraphAnalytics.Result result = new GraphAnalytics(new IndexedGraph(diGraph)).analyze(pool);
+        List<String> hotSpots = result.getHotSpots(1);
+
+        assertEquals(List.of("gateway"), hotSpots);
+        assertEquals(25, result.getBetweenness("gateway"));
+    }
+
+    /**
+     * Parallel results match a single threaded run, sampling all sources is exact
+     * and sampling fewer is close on a regular graph.
+     */
+    @Test
+    public void testParallelAndSampling() {
+        IndexedGraph graph = TestParallelShortestPath.synthetic(2_000, 3, 13);
+        GraphAnalytics analytics = new GraphAnalytics(graph);
+
+        GraphAnalytics.Result parallel = analytics.analyze(pool);
+        GraphAnalytics.Result sequential = analytics.analyze(new ForkJoinPool(1));
+        GraphAnalytics.Result all = analytics.analyze(pool, 2_000, 1);
+        GraphAnalytics.Result sampled = analytics.analyze(pool, 500, 1);
+
+        double total = 0;
+        double sampledTotal = 0;
+        for (int v = 0; v < graph.size(); v++) {
+            assertEquals(sequential.getBetweenness(v), parallel.getBetweenness(v), 1e-6);
+            assertEquals(parallel.getBetweenness(v), all.getBetweenness(v), 1e-6);
+            total += parallel.getBetweenness(v);
+            sampledTotal += sampled.getBetweenness(v);
+        }
+
+        assertEquals(parallel.getLatencies().getCount(), sequential.getLatencies().getCount());
+        assertEquals(500, sampled.getSources());
+        assertTrue(Math.abs(sampledTotal - total) / total < 0.1);
+
+        int p99 = parallel.getLatencies().getPercentile(99);
+        assertTrue(Math.abs(sampled.getLatencies().getPercentile(99) - p99) <= p99 / 8);
+
+        System.out.printf("GraphAnalytics: %d nodes, exact %.0fms, 500 samples %.0fms, p50 %d p99 %d%n",
+                graph.size(), parallel.getNanos() / 1e6, sampled.getNanos() / 1e6,
+                parallel.getLatencies().getPercentile(50), p99);
+    }
+
+}
@@ -0,0 +1,470 @@
+package de.zeus.digraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestGraphJournal {
+
+    @TempDir
+    Path directory;
+
+    private void connectSample(GraphJournal journal) throws IOException {
+        for (String edge : "AB5, BC4, CD8, DC8, DE6, AD5, CE2, EB3, AE7".split(", ")) {
+            journal.connect(edge.substring(0, 1), edge.substring(1, 2), Integer.parseInt(edge.substring(2)));
+        }
+    }
+
+    @Test
+    public void testRecover() throws IOException {
+        try (GraphJournal journal = new GraphJournal(directory)) {
+            connectSample(journal);
+            journal.setLatency("B", "C", 10);
+        }
+
+        try (GraphJournal journal = new GraphJournal(directory)) {
+            DiGraph diGraph = journal.getDiGraph();
+            assertEquals(5, diGraph.getNodes().size());
+            assertEquals(15, diGraph.getLatency("A-B-C"));
+            assertEquals(15, diGraph.getLatency("A-D-C-E"));
+        }
+    }
+
+    @Test
+    public void testInvalidMutations() throws IOException {
+        try (GraphJournal journal = new GraphJournal(directory)) {
+            journal.connect("A", "B", 5);
+
+            assertThrows(RuntimeException.class, () -> journal.connect("A", "B", 3));
+            assertThrows(RuntimeException.class, () -> journal.setLatency("B", "A", 3));
+            assertThrows(RuntimeException.class, () -> journal.setLatency("A", "B", -1));
+        }
+
+        try (GraphJournal journal = new GraphJournal(directory)) {
+            assertEquals(5, journal.getDiGraph().getEdge("A", "B").getLatency());
+        }
+    }
+
+    /**
+     * Cuts the log at every possible position, recovery must keep exactly the
+     * complete records.
+     */
+    @Test
+    public void testTornWrites() throws IOException {
+        try (GraphJournal journal = new GraphJournal(directory)) {
+            journal.connect("A", "B", 5);
+            journal.connect("B", "C", 4);
+            journal.setLatency("A", "B", 7);
+        }
+
+        Path log = directory.resolve(GraphJournal.LOG);
+        byte[] complete = Files.readAllBytes(log);
+        int recordSize = complete.length / 3; // records have the same size here
+
+        for (int cut = 0; cut < complete.length; cut++) {
+            byte[] torn = new byte[cut];
+            System.arraycopy(complete, 0, torn, 0, cut);
+            Files.write(log, torn);
+
+            try (GraphJournal journal = new GraphJournal(directory)) {
+                int records = cut / recordSize;
+                DiGraph diGraph = journal.getDiGraph();
+
+                assertEquals(records * recordSize, Files.size(log)); // torn tail cut off
+                assertEquals(records == 0 ? null : records == 3 ? 7 : 5, latency(diGraph, "A", "B"));
+                assertEquals(records >= 2 ? 4 : null, latency(diGraph, "B", "C"));
+
+                // appending after recovery works
+                journal.connect("X", "Y", 1);
+            }
+        }
+    }
+
+    @Test
+    public void testCorruptRecord() throws IOException {
+        try (GraphJournal journal = new GraphJournal(directory)) {
+            journal.connect("A", "B", 5);
+            journal.connect("B", "C", 4);
+        }
+
+        // flip a byte in the latency of the last record
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve(GraphJournal.LOG).toFile(), "rw")) {
+            file.seek(file.length() - 1);
+            int b = file.read();
+            file.seek(file.length() - 1);
+            file.write(b ^ 0xFF);
+        }
+
+        try (GraphJournal journal = new GraphJournal(directory)) {
+            assertEquals(5, latency(journal.getDiGraph(), "A", "B"));
+            assertNull(latency(journal.getDiGraph(), "B", "C"));
+        }
+    }
+
+    @Test
+    public void testCompaction() throws IOException {
+        try (GraphJournal journal = new GraphJournal(directory, 500)) {
+            connectSample(journal);
+            for (int i = 0; i < 100; i++) {
+                journal.setLatency("A", "B", i);
+            }
+            assertTrue(journal.getLogSize() <= 500);
+        }
+
+        assertTrue(Files.exists(directory.resolve(GraphJournal.SNAPSHOT)));
+
+        try (GraphJournal journal = new GraphJournal(directory)) {
+            assertEquals(99, latency(journal.getDiGraph(), "A", "B"));
+            assertEquals(9, journal.getDiGraph().getShortestLatency("B", "B"));
+
+            journal.compact();
+            assertEquals(0, journal.getLogSize());
+        }
+
+        // a crash after writing the snapshot but before truncating replays the log twice
+        Files.copy(directory.resolve(GraphJournal.SNAPSHOT), directory.resolve(GraphJournal.LOG),
+                StandardCopyOption.REPLACE_EXISTING);
+        try (GraphJournal journal = new GraphJournal(directory)) {
+            assertEquals(99, latency(journal.getDiGraph(), "A", "B"));
+        }
+    }
+
+    /**
+     * Durable mutations from many threads, prints the throughput with group
+     * commit.
+     */
+    @Test
+    public void testGroupCommitThroughput() throws Exception {
+        int threads = 16;
+        int perThread = 200;
+
+        try (GraphJournal journal = new GraphJournal(directory)) {
+            for (int t = 0; t < threads; t++) {
+                journal.connect("client" + t, "service", 1);
+            }
+
+            List<Thread> writers = new ArrayList<>();
+            List<Exception> errors = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String client = "client" + t;
+                writers.add(new Thread(() -> {
+                    try {
+                        for (int i = 0; i < perThread; i++) {
+                            journal.setLatency(client, "service", i);
+                        }
+                    } catch (IOException e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                }));
+            }
+
+            long start = System.nanoTime();
+            writers.forEach(Thread::start);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            assertTrue(errors.isEmpty());
+            System.out.printf("GraphJournal: %d durable mutations from %d threads in %.3fs, %.0f mutations/s%n",
+                    threads * perThread, threads, seconds, threads * perThread / seconds);
+        }
+
+        try (GraphJournal journal = new GraphJournal(directory)) {
+            assertEquals(perThread - 1, latency(journal.getDiGraph(), "client3", "service"));
+        }
+    }
+
+    /**
+     * Latencies set directly on the edges, e.g. by a LatencyIngestor, are
+     * journaled, journaled updates are not logged twice.
+     */
+    @Test
+    public void testDirectLatencyUpdates() throws IOException {
+        try (GraphJournal journal = new GraphJournal(directory)) {
+            journal.connect("A", "B", 5);
+            journal.connect("B", "C", 4);
+            long record = journal.getLogSize() / 2;
+
+            journal.setLatency("A", "B", 6);
+            assertEquals(3 * record, journal.getLogSize());
+
+            journal.getDiGraph().getEdge("A", "B").setLatency(9);
+            journal.sync();
+            assertEquals(4 * record, journal.getLogSize());
+
+            LatencyIngestor ingestor = new LatencyIngestor(journal.getDiGraph(), 1000, 3, 1, () -> 0);
+            ingestor.record("B", "C", 10);
+            ingestor.record("B", "C", 20);
+            assertEquals(1, ingestor.fold());
+        }
+
+        try (GraphJournal journal = new GraphJournal(directory)) {
+            assertEquals(9, latency(journal.getDiGraph(), "A", "B"));
+            assertEquals(15, latency(journal.getDiGraph(), "B", "C"));
+        }
+    }
+
+    /**
+     * Names that do not fit the record format are rejected, not truncated.
+     */
+    @Test
+    public void testLongNames() throws IOException {
+        String name = "x".repeat(1 << 16);
+
+        try (GraphJournal journal = new GraphJournal(directory)) {
+            assertThrows(RuntimeException.class, () -> journal.connect(name, "B", 1));
+            assertThrows(RuntimeException.class, () -> journal.connect("A", name, 1));
+            journal.connect("A", name.substring(1), 1);
+            journal.connect(name.substring(1), "A", 1);
+        }
+
+        try (GraphJournal journal = new GraphJournal(directory)) {
+            assertEquals(2, journal.getDiGraph().getNodes().size());
+            assertEquals(1, latency(journal.getDiGraph(), "A", name.substring(1)));
+        }
+    }
+
+    /**
+     * Writes half of a batch and fails, the record is cut off, the mutation not
+     * applied and the journal rejects further mutations.
+     */
+    @Test
+    public void testFailedWrite() throws IOException {
+        testFailure(channel -> channel.failWrite = true);
+    }
+
+    /**
+     * Writes a batch but fails to force it, same as a failed write.
+     */
+    @Test
+    public void testFailedForce() throws IOException {
+        testFailure(channel -> channel.failForce = true);
+    }
+
+    private void testFailure(Consumer<FailingChannel> failure) throws IOException {
+        FailingChannel[] channel = new FailingChannel[1];
+        Path log = directory.resolve(GraphJournal.LOG);
+
+        try (GraphJournal journal = new GraphJournal(directory, Long.MAX_VALUE,
+                c -> channel[0] = new FailingChannel(c))) {
+            journal.connect("A", "B", 5);
+            long size = Files.size(log);
+
+            failure.accept(channel[0]);
+            assertThrows(IOException.class, () -> journal.connect("B", "C", 4));
+            assertNull(journal.getDiGraph().getEdge("B", "C"));
+            assertEquals(size, Files.size(log));
+
+            // failed for good, even if the disk recovers
+            channel[0].failWrite = false;
+            channel[0].failForce = false;
+            assertThrows(IOException.class, () -> journal.setLatency("A", "B", 1));
+            assertThrows(IOException.class, () -> journal.connect("C", "D", 1));
+            assertEquals(5, latency(journal.getDiGraph(), "A", "B"));
+        }
+
+        try (GraphJournal journal = new GraphJournal(directory)) {
+            assertEquals(5, latency(journal.getDiGraph(), "A", "B"));
+            assertNull(journal.getDiGraph().getEdge("B", "C"));
+            journal.connect("B", "C", 4);
+        }
+    }
+
+    /**
+     * Writers waiting for a failing group commit fail as well, none of their
+     * mutations is applied.
+     */
+    @Test
+    public void testFailedGroupCommit() throws Exception {
+        FailingChannel[] channel = new FailingChannel[1];
+
+        try (GraphJournal journal = new GraphJournal(directory, Long.MAX_VALUE,
+                c -> channel[0] = new FailingChannel(c))) {
+            channel[0].failWrite = true;
+            channel[0].blockWrite = new CountDownLatch(1);
+
+            List<Thread> writers = new ArrayList<>();
+            List<Exception> errors = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                String client = "client" + t;
+                writers.add(new Thread(() -> {
+                    try {
+                        journal.connect(client, "service", 1);
+                    } catch (IOException e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                }));
+            }
+
+            writers.get(0).start();
+            channel[0].writing.await(); // the leader is writing, the others append and wait
+            for (Thread writer : writers.subList(1, writers.size())) {
+                writer.start();
+            }
+            Thread.sleep(100);
+            channel[0].blockWrite.countDown();
+            for (Thread writer : writers) {
+                writer.join();
+            }
+
+            assertEquals(8, errors.size());
+            assertEquals(0, journal.getDiGraph().getNodes().size());
+        }
+
+        assertEquals(0, Files.size(directory.resolve(GraphJournal.LOG)));
+    }
+
+    /**
+     * Delegates to the log channel, optionally writing only half of a buffer
+     * before failing, or failing to force.
+     */
+    private static class FailingChannel extends FileChannel {
+
+        private FileChannel delegate;
+        private volatile boolean failWrite;
+        private volatile boolean failForce;
+        private volatile CountDownLatch blockWrite;
+        private CountDownLatch writing = new CountDownLatch(1);
+
+        FailingChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (failWrite == false) {
+                return delegate.write(src);
+            }
+
+            writing.countDown();
+            if (blockWrite != null) {
+                try {
+                    blockWrite.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+
+            ByteBuffer half = src.duplicate();
+            half.limit(src.position() + src.remaining() / 2);
+            delegate.write(half);
+            throw new IOException("disk full");
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (failForce) {
+                throw new IOException("I/O error");
+            }
+            delegate.force(metaData);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+
+    private static Integer latency(DiGraph diGraph, String from, String to) {
+        Edge edge = diGraph.getEdge(from, to);
+        return edge == null ? null : edge.getLatency();
+    }
+
+}
@@ -0,0 +1,42 @@
+package de.zeus.digraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class TestGraphPartitioner {
+
+    /**
+     * Two dense clusters connected by a single edge.
+     */
+    @Test
+    public void testClusters() {
+        DiGraph diGraph = new DiGraph("AB1, BA1, BC1, CA1, AC1, CB1, CD1, DE1, ED1, EF1, FD1, DF1, FE1");
+        IndexedGraph graph = new IndexedGraph(diGraph);
+        GraphPartitioner partitioner = new GraphPartitioner(graph, 2);
+
+        assertEquals(1, partitioner.getCutEdges());
+        assertEquals(3, partitioner.size(0));
+        assertEquals(3, partitioner.size(1));
+        assertEquals(partitioner.partition(graph.getId("A")), partitioner.partition(graph.getId("C")));
+        assertEquals(partitioner.partition(graph.getId("D")), partitioner.partition(graph.getId("F")));
+    }
+
+    @Test
+    public void testBalance() {
+        IndexedGraph graph = TestParallelShortestPath.synthetic(10_000, 4, 3);
+        GraphPartitioner partitioner = new GraphPartitioner(graph, 8);
+
+        int sum = 0;
+        for (int p = 0; p < 8; p++) {
+            assertTrue(partitioner.size(p) <= Math.ceil(1.1 * 10_000 / 8));
+            sum += partitioner.size(p);
+        }
+        assertEquals(10_000, sum);
+
+        // local edges mostly stay inside partitions
+        assertTrue(partitioner.getCutEdges() < graph.edgeCount() / 2);
+    }
+
+}
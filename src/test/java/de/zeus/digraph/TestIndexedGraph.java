@@ -0,0 +1,107 @@
+package de.zeus.digraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class TestIndexedGraph {
+
+    private static IndexedGraph graph = new IndexedGraph(new DiGraph("AB5, BC4, CD8, DC8, DE6, AD5, CE2, EB3, AE7"));
+
+    @Test
+    public void testIds() {
+        assertEquals(5, graph.size());
+        assertEquals(9, graph.edgeCount());
+
+        assertEquals(0, graph.getId("A"));
+        assertEquals(4, graph.getId("E"));
+        assertEquals(-1, graph.getId("X"));
+        assertEquals("C", graph.getName(2));
+    }
+
+    @Test
+    public void testOutgoingEdges() {
+        int a = graph.getId("A");
+
+        // AB5, AD5, AE7 sorted by target
+        assertEquals(3, graph.endEdge(a) - graph.firstEdge(a));
+        assertEquals("B", graph.getName(graph.target(graph.firstEdge(a))));
+        assertEquals("D", graph.getName(graph.target(graph.firstEdge(a) + 1)));
+        assertEquals(7, graph.latency(graph.firstEdge(a) + 2));
+    }
+
+    @Test
+    public void testIncomingEdges() {
+        int c = graph.getId("C");
+
+        // BC4, DC8
+        assertEquals(2, graph.endInEdge(c) - graph.firstInEdge(c));
+        assertEquals("B", graph.getName(graph.source(graph.firstInEdge(c))));
+        assertEquals(8, graph.latency(graph.inEdge(graph.firstInEdge(c) + 1)));
+    }
+
+    @Test
+    public void testRefreshLatencies() {
+        DiGraph diGraph = new DiGraph("AB5, BC4");
+        IndexedGraph indexed = new IndexedGraph(diGraph);
+
+        Edge ab = indexed.edge(indexed.firstEdge(indexed.getId("A")));
+        ab.setLatency(10);
+        assertEquals(5, indexed.latency(indexed.firstEdge(indexed.getId("A"))));
+
+        indexed.refreshLatencies();
+        assertEquals(10, indexed.latency(indexed.firstEdge(indexed.getId("A"))));
+    }
+
+    @Test
+    public void testReadLatencies() {
+        DiGraph diGraph = new DiGraph("AB5, BC4");
+        IndexedGraph indexed = new IndexedGraph(diGraph);
+        int ab = indexed.firstEdge(indexed.getId("A"));
+
+        indexed.edge(ab).setLatency(10);
+        int[] latencies = indexed.readLatencies();
+        assertEquals(10, latencies[ab]);
+        assertEquals(5, indexed.latency(ab)); // the shared graph is not changed
+
+        // a critical path on the snapshot reads the current latencies
+        diGraph.getEdge("B", "C").setLatency(7);
+        assertEquals(17, diGraph.getCriticalPath("A").getLatency());
+        assertEquals(7, diGraph.getCriticalPath("B").getLatency());
+    }
+
+    /**
+     * Edge lists keep the node numbers and sort each adjacency by target, also
+     * for a hub with many edges.
+     */
+    @Test
+    public void testEdgeList() {
+        int n = 20_000;
+        int[] from = new int[n + 2];
+        int[] to = new int[n + 2];
+        int[] latency = new int[n + 2];
+        for (int e = 0; e < n; e++) { // hub 0 calls every node, in descending order
+            to[e] = n - 1 - e;
+            latency[e] = e;
+        }
+        from[n] = 2;
+        to[n] = 1;
+        latency[n] = 7;
+        from[n + 1] = 2;
+        to[n + 1] = 0;
+        latency[n + 1] = 3;
+
+        IndexedGraph indexed = IndexedGraph.of(n, from, to, latency);
+        assertEquals(10, indexed.getId("10"));
+        assertEquals(n, indexed.endEdge(0));
+        for (int e = 0; e < n; e++) {
+            assertEquals(e, indexed.target(e));
+            assertEquals(n - 1 - e, indexed.latency(e));
+        }
+        assertEquals(0, indexed.target(indexed.firstEdge(2)));
+        assertEquals(3, indexed.latency(indexed.firstEdge(2)));
+        assertEquals(1, indexed.target(indexed.firstEdge(2) + 1));
+        assertEquals(7, indexed.latency(indexed.firstEdge(2) + 1));
+    }
+
+}
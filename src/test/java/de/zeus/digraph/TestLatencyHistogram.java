@@ -0,0 +1,94 @@
+package de.zeus.digraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class TestLatencyHistogram {
+
+    @Test
+    public void testExactPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 20; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(20, histogram.getCount());
+        assertEquals(10, histogram.getPercentile(50));
+        assertEquals(20, histogram.getPercentile(99));
+        assertEquals(1, histogram.getPercentile(0));
+        assertEquals(10.5, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    public void testRelativeError() {
+        for (int latency : new int[] { 32, 100, 1_000, 12_345, 1_000_000, Integer.MAX_VALUE }) {
+            int value = LatencyHistogram.of(latency).getPercentile(50);
+            assertTrue(Math.abs(value - (double) latency) / latency < 1.0 / 16, latency + " -> " + value);
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals(-1, new LatencyHistogram().getPercentile(50));
+        assertEquals(-1, new LatencyHistogram().getMean());
+    }
+
+    @Test
+    public void testBoundedMemory() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 100_000; i++) {
+            histogram.record(i % 500);
+        }
+
+        assertTrue(histogram.getMemoryBytes() < 1_000);
+    }
+
+    @Test
+    public void testConvolve() {
+        // 90% 1ms, 10% 10ms
+        LatencyHistogram a = new LatencyHistogram();
+        a.record(1, 9);
+        a.record(10, 1);
+
+        LatencyHistogram b = LatencyHistogram.of(5);
+
+        LatencyHistogram sum = a.convolve(b);
+        assertEquals(6, sum.getPercentile(50));
+        assertEquals(15, sum.getPercentile(99));
+
+        // two tails: 81% 2ms, 18% 11ms, 1% 20ms
+        LatencyHistogram twice = a.convolve(a);
+        assertEquals(2, twice.getPercentile(50));
+        assertEquals(11, twice.getPercentile(95));
+        assertEquals(20, twice.getPercentile(99.5));
+        assertEquals(3.8, twice.getMean(), 1e-6);
+    }
+
+    @Test
+    public void testTraceDistribution() {
+        DiGraph diGraph = new DiGraph("AB5, BC4, CD8");
+        Edge bc = diGraph.getNodes().stream().filter(n -> n.getName().equals("B")).findFirst().get().getEdges()
+                .get("C");
+
+        for (int i = 0; i < 99; i++) {
+            bc.record(4);
+        }
+        bc.record(100);
+
+        LatencyHistogram distribution = diGraph.getLatencyDistribution("A-B-C-D");
+        assertEquals(17, distribution.getPercentile(50));
+        assertEquals(17, distribution.getPercentile(98));
+        assertEquals(113, distribution.getPercentile(99.9), 113 / 16);
+
+        assertEquals(100, bc.getHistogram().getCount()); // edge histogram not modified
+        assertEquals(4, bc.getLatency()); // average not modified
+        assertNull(diGraph.getLatencyDistribution("A-C"));
+        assertNull(diGraph.getLatencyDistribution("X-A"));
+
+        assertEquals("17", new QueryExecutor(diGraph).execute("percentile A-B-C-D 50"));
+    }
+
+}
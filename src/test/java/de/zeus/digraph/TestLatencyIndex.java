@@ -0,0 +1,93 @@
+package de.zeus.digraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class TestLatencyIndex {
+
+    private static DiGraph diGraph = new DiGraph("AB5, BC4, CD8, DC8, DE6, AD5, CE2, EB3, AE7");
+    private static LatencyIndex index = new LatencyIndex(diGraph);
+
+    /**
+     * @return a random graph with n nodes named "0".."n-1" and about n * degree
+     *         edges
+     */
+    private static DiGraph random(int n, int degree, long seed) {
+        Random random = new Random(seed);
+        DiGraph graph = new DiGraph();
+
+        for (int i = 0; i < n * degree; i++) {
+            int from = random.nextInt(n);
+            int to = random.nextInt(n);
+
+            try {
+                graph.connect(String.valueOf(from), String.valueOf(to), random.nextInt(100));
+            } catch (RuntimeException e) {
+                // duplicate edge or loop, skip
+            }
+        }
+
+        return graph;
+    }
+
+    @Test
+    public void testShortestLatency() {
+        assertEquals(9, index.getShortestLatency("A", "C"));
+        assertEquals(9, index.getShortestLatency("B", "B"));
+        assertEquals(7, index.getShortestLatency("A", "E"));
+        assertEquals(-1, index.getShortestLatency("C", "A"));
+        assertEquals(-1, index.getShortestLatency("X", "A"));
+    }
+
+    @Test
+    public void testReachable() {
+        assertTrue(index.isReachable("A", "C"));
+        assertFalse(index.isReachable("C", "A"));
+        assertTrue(index.isReachable("A", "C", 9));
+        assertFalse(index.isReachable("A", "C", 8));
+        assertFalse(index.isReachable("A", "A")); // no cycle through A
+    }
+
+    @Test
+    public void testAgainstDijkstra() {
+        DiGraph graph = random(100, 2, 42);
+        LatencyIndex randomIndex = new LatencyIndex(graph);
+
+        for (int from = 0; from < 100; from += 3) {
+            for (int to = 0; to < 100; to++) {
+                String f = String.valueOf(from);
+                String t = String.valueOf(to);
+                assertEquals(graph.getShortestLatency(f, t), randomIndex.getShortestLatency(f, t), f + "->" + t);
+            }
+        }
+    }
+
+    /**
+     * Reports build time, memory and query time for a larger topology.
+     */
+    @Test
+    public void testBuildStatistics() {
+        DiGraph graph = random(5_000, 3, 7);
+        LatencyIndex randomIndex = new LatencyIndex(graph);
+
+        Random random = new Random(1);
+        int queries = 100_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            randomIndex.isReachable(String.valueOf(random.nextInt(5_000)), String.valueOf(random.nextInt(5_000)), 100);
+        }
+        long queryNanos = System.nanoTime() - start;
+
+        System.out.printf("LatencyIndex: 5000 nodes, built in %.1fms, %d label entries, %.1f MB, %.2fus/query%n",
+                randomIndex.getBuildNanos() / 1e6, randomIndex.getLabelEntries(),
+                randomIndex.getMemoryBytes() / 1e6, queryNanos / 1e3 / queries);
+
+        assertTrue(randomIndex.getLabelEntries() > 0);
+    }
+
+}
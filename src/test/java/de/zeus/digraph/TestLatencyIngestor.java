@@ -0,0 +1,120 @@
+package de.zeus.digraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class TestLatencyIngestor {
+
+    @Test
+    public void testFoldAverage() {
+        DiGraph diGraph = new DiGraph("AB5, BC4");
+        AtomicLong now = new AtomicLong();
+        LatencyIngestor ingestor = new LatencyIngestor(diGraph, 1000, 3, 1, now::get);
+
+        assertTrue(ingestor.record("A", "B", 10));
+        assertTrue(ingestor.record("A", "B", 20));
+
+        assertEquals(1, ingestor.fold());
+        assertEquals(15, diGraph.getEdge("A", "B").getLatency());
+        assertEquals(4, diGraph.getEdge("B", "C").getLatency()); // no observations
+        assertEquals(19, diGraph.getLatency("A-B-C"));
+    }
+
+    @Test
+    public void testUnknownEdge() {
+        LatencyIngestor ingestor = new LatencyIngestor(new DiGraph("AB5"), 1000, 3);
+
+        assertFalse(ingestor.record("B", "A", 10));
+        assertFalse(ingestor.record("X", "A", 10));
+        assertEquals(2, ingestor.getDropped());
+    }
+
+    @Test
+    public void testWindowsExpire() {
+        DiGraph diGraph = new DiGraph("AB5");
+        AtomicLong now = new AtomicLong();
+        LatencyIngestor ingestor = new LatencyIngestor(diGraph, 1000, 3, 1, now::get);
+
+        ingestor.record("A", "B", 10);
+        now.set(1000);
+        ingestor.record("A", "B", 30);
+        ingestor.fold();
+        assertEquals(20, diGraph.getEdge("A", "B").getLatency());
+
+        // first window is older than 3 windows now
+        now.set(3000);
+        ingestor.fold();
+        assertEquals(30, diGraph.getEdge("A", "B").getLatency());
+
+        // all windows expired, keep the last latency
+        now.set(10_000);
+        assertEquals(0, ingestor.fold());
+        assertEquals(30, diGraph.getEdge("A", "B").getLatency());
+
+        // reused slot is reset
+        ingestor.record("A", "B", 50);
+        ingestor.fold();
+        assertEquals(50, diGraph.getEdge("A", "B").getLatency());
+    }
+
+    @Test
+    public void testDecay() {
+        DiGraph diGraph = new DiGraph("AB5");
+        AtomicLong now = new AtomicLong();
+        LatencyIngestor ingestor = new LatencyIngestor(diGraph, 1000, 4, 0.5, now::get);
+
+        ingestor.record("A", "B", 10);
+        now.set(1000);
+        ingestor.record("A", "B", 40);
+        ingestor.fold();
+
+        // (0.5 * 10 + 40) / 1.5
+        assertEquals(30, diGraph.getEdge("A", "B").getLatency());
+    }
+
+    /**
+     * Many producers recording concurrently, prints the throughput.
+     */
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        DiGraph diGraph = new DiGraph("AB5, BC4, CD8, DC8, DE6, AD5, CE2, EB3, AE7");
+        LatencyIngestor ingestor = new LatencyIngestor(diGraph, 60_000, 2);
+
+        String[][] edges = { { "A", "B" }, { "B", "C" }, { "C", "D" }, { "D", "C" }, { "D", "E" }, { "A", "D" },
+                { "C", "E" }, { "E", "B" }, { "A", "E" } };
+        int threads = 8;
+        int perThread = 500_000;
+
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            producers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    String[] edge = edges[i % edges.length];
+                    ingestor.record(edge[0], edge[1], 10 + i / edges.length % 3); // average 11
+                }
+            }));
+        }
+
+        long start = System.nanoTime();
+        producers.forEach(Thread::start);
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("LatencyIngestor: %d observations from %d threads in %.3fs, %.0f observations/s%n",
+                threads * perThread, threads, seconds, threads * perThread / seconds);
+
+        assertEquals(9, ingestor.fold());
+        assertEquals(11, diGraph.getEdge("A", "B").getLatency());
+        assertEquals(0, ingestor.getDropped());
+    }
+
+}
@@ -0,0 +1,175 @@
+package de.zeus.digraph;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class TestParallelShortestPath {
+
+    /**
+     * Ring of n nodes where every node calls "degree" nodes close to it, and
+     * about every tenth node one random node.
+     */
+    static IndexedGraph synthetic(int n, int degree, long seed) {
+        Random random = new Random(seed);
+        int m = n * degree + n / 10;
+        int[] from = new int[m];
+        int[] to = new int[m];
+        int[] latency = new int[m];
+
+        int e = 0;
+        for (int v = 0; v < n; v++) {
+            for (int i = 1; i <= degree; i++) {
+                from[e] = v;
+                to[e] = (v + i * (1 + random.nextInt(8))) % n;
+                latency[e++] = 1 + random.nextInt(100);
+            }
+        }
+        while (e < m) {
+            from[e] = random.nextInt(n);
+            to[e] = random.nextInt(n);
+            latency[e++] = 1 + random.nextInt(1000);
+        }
+
+        return IndexedGraph.of(n, from, to, latency);
+    }
+
+    @Test
+    public void testShortestLatency() {
+        IndexedGraph graph = new IndexedGraph(new DiGraph("AB5, BC4, CD8, DC8, DE6, AD5, CE2, EB3, AE7"));
+
+        try (ParallelShortestPath parallel = new ParallelShortestPath(graph, new GraphPartitioner(graph, 2), 3)) {
+            assertEquals(9, parallel.getShortestLatency("A", "C"));
+            assertEquals(9, parallel.getShortestLatency("B", "B"));
+            assertEquals(7, parallel.getShortestLatency("A", "E"));
+            assertEquals(-1, parallel.getShortestLatency("C", "A"));
+            assertEquals(-1, parallel.getShortestLatency("X", "A"));
+        }
+    }
+
+    @Test
+    public void testAgainstDijkstra() {
+        IndexedGraph graph = synthetic(5_000, 3, 11);
+
+        try (ParallelShortestPath parallel = new ParallelShortestPath(graph, new GraphPartitioner(graph, 4), 50)) {
+            for (int source = 0; source < 5_000; source += 997) {
+                assertArrayEquals(ParallelShortestPath.dijkstra(graph, source), parallel.distances(source));
+            }
+        }
+    }
+
+    /**
+     * Buckets much narrower than the edge latencies wrap around the ring, long
+     * paths do not allocate a bucket per delta of distance.
+     */
+    @Test
+    public void testNarrowBuckets() {
+        IndexedGraph graph = synthetic(5_000, 3, 17);
+
+        try (ParallelShortestPath parallel = new ParallelShortestPath(graph, new GraphPartitioner(graph, 3), 1)) {
+            for (int source = 0; source < 5_000; source += 1_999) {
+                assertArrayEquals(ParallelShortestPath.dijkstra(graph, source), parallel.distances(source));
+            }
+        }
+
+        // chain of 500 edges of 100000, 5 * 10^7 in total
+        int n = 501;
+        int[] from = new int[n - 1];
+        int[] to = new int[n - 1];
+        int[] latency = new int[n - 1];
+        for (int v = 0; v < n - 1; v++) {
+            from[v] = v;
+            to[v] = v + 1;
+            latency[v] = 100_000;
+        }
+        IndexedGraph chain = IndexedGraph.of(n, from, to, latency);
+
+        try (ParallelShortestPath parallel = new ParallelShortestPath(chain, new GraphPartitioner(chain, 2), 1)) {
+            assertEquals(50_000_000, parallel.distances(0)[500]);
+        }
+    }
+
+    /**
+     * Latencies far beyond the ring size wait in the overflow, an edge of
+     * Integer.MAX_VALUE with delta 1 neither overflows nor allocates its range.
+     */
+    @Test
+    public void testOverflowBuckets() {
+        int[] from = { 0, 1, 0, 0, 3, 2, 4 };
+        int[] to = { 1, 2, 2, 3, 2, 4, 5 };
+        int[] latency = { 1_000_000_000, 1_000_000_000, 2_100_000_000, 5, 7, 100_000, Integer.MAX_VALUE };
+        IndexedGraph graph = IndexedGraph.of(6, from, to, latency);
+
+        try (ParallelShortestPath parallel = new ParallelShortestPath(graph, new GraphPartitioner(graph, 2), 1)) {
+            int[] dist = parallel.distances(0);
+            assertEquals(1_000_000_000, dist[1]);
+            assertEquals(12, dist[2]);
+            assertEquals(100_012, dist[4]);
+            assertEquals(Integer.MAX_VALUE - 1, dist[5]); // capped, as for every sum beyond an int
+        }
+
+        // latencies up to 10^6 with delta 1, most relaxations go to the overflow
+        Random random = new Random(23);
+        int n = 3_000;
+        int m = 4 * n;
+        from = new int[m];
+        to = new int[m];
+        latency = new int[m];
+        for (int e = 0; e < m; e++) {
+            from[e] = random.nextInt(n);
+            to[e] = random.nextInt(n);
+            latency[e] = random.nextInt(1_000_000);
+        }
+        IndexedGraph wide = IndexedGraph.of(n, from, to, latency);
+
+        try (ParallelShortestPath parallel = new ParallelShortestPath(wide, new GraphPartitioner(wide, 3), 1)) {
+            for (int source = 0; source < n; source += 997) {
+                assertArrayEquals(ParallelShortestPath.dijkstra(wide, source), parallel.distances(source));
+            }
+        }
+    }
+
+    /**
+     * Compares sequential Dijkstra with the parallel version, use
+     * -Ddigraph.bench.nodes=1000000 for a full size run.
+     */
+    @Test
+    public void testSpeedup() {
+        int n = Integer.getInteger("digraph.bench.nodes", 200_000);
+        int k = Math.max(2, Runtime.getRuntime().availableProcessors());
+        IndexedGraph graph = synthetic(n, 4, 5);
+
+        long start = System.nanoTime();
+        GraphPartitioner partitioner = new GraphPartitioner(graph, k);
+        long partitionNanos = System.nanoTime() - start;
+
+        try (ParallelShortestPath parallel = new ParallelShortestPath(graph, partitioner, 100)) {
+            int[] expected = null;
+            int[] actual = null;
+            long sequentialNanos = Long.MAX_VALUE;
+            long parallelNanos = Long.MAX_VALUE;
+
+            // best of a few runs, the first ones warm up the JIT
+            for (int run = 0; run < 3; run++) {
+                start = System.nanoTime();
+                expected = ParallelShortestPath.dijkstra(graph, 0);
+                sequentialNanos = Math.min(sequentialNanos, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                actual = parallel.distances(0);
+                parallelNanos = Math.min(parallelNanos, System.nanoTime() - start);
+            }
+
+            assertArrayEquals(expected, actual);
+            System.out.printf(
+                    "ParallelShortestPath: %d nodes, %d edges, %d partitions (%d cut edges, %.0fms), "
+                            + "dijkstra %.1fms, delta-stepping %.1fms, speedup %.2f%n",
+                    n, graph.edgeCount(), k, partitioner.getCutEdges(), partitionNanos / 1e6, sequentialNanos / 1e6,
+                    parallelNanos / 1e6, (double) sequentialNanos / parallelNanos);
+        }
+    }
+
+}
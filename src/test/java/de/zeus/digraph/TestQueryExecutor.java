@@ -0,0 +1,52 @@
+package de.zeus.digraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class TestQueryExecutor {
+
+    private static QueryExecutor executor = new QueryExecutor(new DiGraph("AB5, BC4, CD8, DC8, DE6, AD5, CE2, EB3, AE7"));
+
+    @Test
+    public void testLatency() {
+        assertEquals("9", executor.execute("latency A-B-C"));
+        assertEquals("NO SUCH TRACE", executor.execute("latency A-E-D"));
+    }
+
+    @Test
+    public void testFormatLatency() {
+        assertEquals("0", QueryExecutor.formatLatency(0));
+        assertEquals(QueryExecutor.NO_SUCH_TRACE, QueryExecutor.formatLatency(-1));
+    }
+
+    @Test
+    public void testPaths() {
+        assertEquals("2", executor.execute("paths C C 3"));
+        assertEquals("3", executor.execute("count-exact A C 4"));
+        assertEquals("7", executor.execute("max-latency C C 30"));
+    }
+
+    @Test
+    public void testShortest() {
+        assertEquals("9", executor.execute("  shortest   B B "));
+        assertEquals("NO SUCH TRACE", executor.execute("shortest C A"));
+    }
+
+    @Test
+    public void testUnknownNodes() {
+        assertEquals("0", executor.execute("paths X C 3"));
+        assertEquals("0", executor.execute("count-exact A X 3"));
+        assertEquals("NO SUCH TRACE", executor.execute("shortest X A"));
+    }
+
+    @Test
+    public void testMalformed() {
+        assertTrue(executor.execute("foo A B").startsWith(QueryExecutor.ERROR));
+        assertTrue(executor.execute("paths C C").startsWith(QueryExecutor.ERROR));
+        assertTrue(executor.execute("paths C C x").startsWith(QueryExecutor.ERROR));
+        assertTrue(executor.execute("latency A--B").startsWith(QueryExecutor.ERROR));
+    }
+
+}
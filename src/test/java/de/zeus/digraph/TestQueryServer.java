@@ -0,0 +1,169 @@
+package de.zeus.digraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+public class TestQueryServer {
+
+    private static DiGraph diGraph = new DiGraph("AB5, BC4, CD8, DC8, DE6, AD5, CE2, EB3, AE7");
+
+    private static final String[] QUERIES = { "latency A-B-C", "latency A-E-D", "paths C C 3", "count-exact A C 4",
+            "shortest A C", "shortest B B", "max-latency C C 30" };
+    private static final String[] ANSWERS = { "9", "NO SUCH TRACE", "2", "3", "9", "9", "7" };
+
+    private static QueryServer start() throws IOException {
+        QueryServer server = new QueryServer(diGraph, 0, InetAddress.getLoopbackAddress());
+        server.start();
+        return server;
+    }
+
+    private static Socket connect(QueryServer server) throws IOException {
+        return new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+    }
+
+    private static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    private static PrintWriter writer(Socket socket) throws IOException {
+        return new PrintWriter(socket.getOutputStream(), false, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testRequestResponse() throws IOException {
+        try (QueryServer server = start(); Socket socket = connect(server)) {
+            BufferedReader in = reader(socket);
+            PrintWriter out = writer(socket);
+
+            for (int i = 0; i < QUERIES.length; i++) {
+                out.println(QUERIES[i]);
+                out.flush();
+                assertEquals(ANSWERS[i], in.readLine());
+            }
+
+            out.println(QueryServer.QUIT);
+            out.flush();
+            assertNull(in.readLine()); // connection closed by the server
+        }
+    }
+
+    @Test
+    public void testPipelining() throws IOException {
+        try (QueryServer server = start(); Socket socket = connect(server)) {
+            BufferedReader in = reader(socket);
+            PrintWriter out = writer(socket);
+
+            // send all requests before reading any response
+            for (int round = 0; round < 100; round++) {
+                for (String query : QUERIES) {
+                    out.println(query);
+                }
+            }
+            out.flush();
+
+            for (int round = 0; round < 100; round++) {
+                for (String answer : ANSWERS) {
+                    assertEquals(answer, in.readLine());
+                }
+            }
+        }
+    }
+
+    /**
+     * A blank line after a pipelined request does not hold back its answer.
+     */
+    @Test
+    public void testBlankLine() throws IOException {
+        try (QueryServer server = start(); Socket socket = connect(server)) {
+            socket.setSoTimeout(2000);
+            BufferedReader in = reader(socket);
+            PrintWriter out = writer(socket);
+
+            out.print("latency A-B-C\n\n");
+            out.flush();
+            assertEquals("9", in.readLine());
+
+            out.print("\n\nlatency A-D\n");
+            out.flush();
+            assertEquals("5", in.readLine());
+        }
+    }
+
+    /**
+     * Load test with concurrent pipelining clients, prints throughput and latency
+     * percentiles of the pipelined batches.
+     */
+    @Test
+    public void testLoad() throws Exception {
+        int clients = 8;
+        int batches = 50;
+        int batchSize = 100;
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+
+        try (QueryServer server = start()) {
+            List<Future<long[]>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+
+            for (int c = 0; c < clients; c++) {
+                futures.add(pool.submit(() -> {
+                    long[] latencies = new long[batches];
+
+                    try (Socket socket = connect(server)) {
+                        BufferedReader in = reader(socket);
+                        PrintWriter out = writer(socket);
+
+                        for (int b = 0; b < batches; b++) {
+                            long batchStart = System.nanoTime();
+
+                            for (int i = 0; i < batchSize; i++) {
+                                out.println(QUERIES[i % QUERIES.length]);
+                            }
+                            out.flush();
+
+                            for (int i = 0; i < batchSize; i++) {
+                                assertEquals(ANSWERS[i % ANSWERS.length], in.readLine());
+                            }
+
+                            latencies[b] = System.nanoTime() - batchStart;
+                        }
+                    }
+
+                    return latencies;
+                }));
+            }
+
+            long[] all = new long[clients * batches];
+            for (int c = 0; c < clients; c++) {
+                System.arraycopy(futures.get(c).get(), 0, all, c * batches, batches);
+            }
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Arrays.sort(all);
+
+            System.out.printf("QueryServer: %d queries in %.3fs, %.0f queries/s, batch of %d p50 %.3fms p99 %.3fms%n",
+                    clients * batches * batchSize, seconds, clients * batches * batchSize / seconds, batchSize,
+                    all[all.length / 2] / 1e6, all[all.length * 99 / 100] / 1e6);
+
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package de.zeus.digraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+public class TestSoakHarness {
+
+    @Test
+    public void testRun() throws IOException, InterruptedException {
+        DiGraph diGraph = new DiGraph();
+        new TopologyGenerator(11).mesh(6, 200, 3, 0.05,
+                (from, to, latency) -> diGraph.connect(String.valueOf(from), String.valueOf(to), latency));
+
+        SoakHarness.Report report = new SoakHarness(diGraph, 2, 1).run(1_000, 200, System.out);
+
+        assertEquals(5, report.getSamples().size());
+        assertEquals(0, report.getErrors());
+        assertTrue(report.getOperations() > 0);
+        for (SoakHarness.Sample sample : report.getSamples()) {
+            assertTrue(sample.getOperations() > 0);
+            assertTrue(sample.getP99() >= sample.getP50());
+            assertTrue(sample.getHeapBytes() > 0);
+        }
+        assertTrue(report.getLatencyDrift() > 0);
+
+        System.out.printf("soak: %d ops, p99 drift %.2f, heap growth %dKB%n", report.getOperations(),
+                report.getLatencyDrift(), report.getHeapGrowth() >> 10);
+    }
+
+    @Test
+    public void testEmpty() {
+        DiGraph diGraph = new DiGraph();
+        assertThrows(RuntimeException.class, () -> new SoakHarness(diGraph, 1, 1).run(100, 10, null));
+        assertThrows(RuntimeException.class, () -> new SoakHarness(new DiGraph("AB1"), 0, 1));
+    }
+
+}
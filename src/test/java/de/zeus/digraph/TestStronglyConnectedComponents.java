@@ -0,0 +1,200 @@
+package de.zeus.digraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+public class TestStronglyConnectedComponents {
+
+    private static StronglyConnectedComponents scc = new StronglyConnectedComponents(
+            new DiGraph("AB5, BC4, CD8, DC8, DE6, AD5, CE2, EB3, AE7"));
+
+    @Test
+    public void testComponents() {
+        // A, and the cycle B-C-D-E
+        assertEquals(2, scc.count());
+        assertFalse(scc.isAcyclic());
+
+        assertEquals(0, scc.component("A"));
+        assertEquals(1, scc.size(0));
+        assertFalse(scc.isCyclic(0));
+
+        assertEquals(scc.component("B"), scc.component("C"));
+        assertEquals(scc.component("B"), scc.component("D"));
+        assertEquals(scc.component("B"), scc.component("E"));
+        assertEquals(4, scc.size(scc.component("B")));
+        assertTrue(scc.isCyclic(scc.component("B")));
+    }
+
+    @Test
+    public void testCondensation() {
+        assertEquals(1, scc.dagEdgeCount());
+        assertEquals(1, scc.endDagEdge(0) - scc.firstDagEdge(0));
+        assertEquals(1, scc.dagTarget(scc.firstDagEdge(0)));
+        assertEquals(5, scc.dagLatency(scc.firstDagEdge(0))); // min of AB5, AD5, AE7
+    }
+
+    @Test
+    public void testReaching() {
+        // B and C lead to D, E is a dead end
+        StronglyConnectedComponents dag = new StronglyConnectedComponents(
+                new DiGraph("AB1, AC1, AE1, BD1, CD1, BF1, FG1, GF1"));
+        BitSet reaching = dag.reaching(dag.component("A"), dag.component("D"));
+
+        for (String name : new String[] { "A", "B", "C", "D" }) {
+            assertTrue(reaching.get(dag.component(name)), name);
+        }
+        for (String name : new String[] { "E", "F", "G" }) {
+            assertFalse(reaching.get(dag.component(name)), name);
+        }
+        assertTrue(dag.reaching(dag.component("D"), dag.component("A")).isEmpty());
+    }
+
+    /**
+     * Path searches skip regions which cannot reach the target, with the same
+     * results as the unpruned searches.
+     */
+    @Test
+    public void testPrunedPaths() {
+        // A-B-T, and a binary tree of 2^15 nodes below X which never reaches T
+        DiGraph diGraph = new DiGraph();
+        diGraph.connect("A", "B", 1);
+        diGraph.connect("B", "T", 1);
+        diGraph.connect("T", "A", 1);
+        diGraph.connect("A", "X1", 1);
+        for (int v = 1; v < 1 << 14; v++) {
+            diGraph.connect("X" + v, "X" + 2 * v, 1);
+            diGraph.connect("X" + v, "X" + (2 * v + 1), 1);
+        }
+
+        Node a = diGraph.getNodes().stream().filter(n -> n.getName().equals("A")).findFirst().get();
+        Node t = diGraph.getNodes().stream().filter(n -> n.getName().equals("T")).findFirst().get();
+        diGraph.getPaths("A", "T", 1); // warms up
+
+        long start = System.nanoTime();
+        List<Trace> pruned = diGraph.getPaths("A", "T", 17);
+        long prunedNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        List<Trace> unpruned = a.getPaths(t, 17);
+        long unprunedNanos = System.nanoTime() - start;
+
+        assertEquals(toStrings(unpruned), toStrings(pruned));
+        assertEquals(6, pruned.size()); // A-B-T and 5 more rounds through T-A
+        assertEquals(toStrings(a.getPathsMaxLatency(t, 30)), toStrings(diGraph.getPathMaxLatency("A", "T", 30)));
+        assertEquals(0, diGraph.getPaths("X1", "T", 17).size());
+
+        System.out.printf("StronglyConnectedComponents: pruned getPaths %.3fms, unpruned %.3fms%n", prunedNanos / 1e6,
+                unprunedNanos / 1e6);
+    }
+
+    /**
+     * Pruning follows structural changes, also edges connected directly on the
+     * nodes and nodes outside the graph.
+     */
+    @Test
+    public void testPrunedPathsAfterChange() {
+        DiGraph diGraph = new DiGraph("AB5, BC4");
+        assertEquals(0, diGraph.getPaths("C", "B", 10).size());
+        assertEquals(0, diGraph.countPathsExact("C", "B", 2));
+
+        diGraph.connect("C", "A", 1);
+        assertEquals(Arrays.asList("C-A-B"), toStrings(diGraph.getPaths("C", "B", 3)));
+        assertEquals(1, diGraph.getPathMaxLatency("C", "B", 7).size());
+        assertEquals(1, diGraph.countPathsExact("C", "B", 2));
+
+        Node a = diGraph.getNodes().stream().filter(n -> n.getName().equals("A")).findFirst().get();
+        Node b = diGraph.getNodes().stream().filter(n -> n.getName().equals("B")).findFirst().get();
+        Node c = diGraph.getNodes().stream().filter(n -> n.getName().equals("C")).findFirst().get();
+        Node x = new Node("X");
+        b.connect(x, 1);
+        x.connect(c, 1);
+        assertEquals(Arrays.asList("A-B-C", "A-B-X-C"), toStrings(diGraph.getPaths("A", "C", 3)));
+        assertEquals(toStrings(a.getPathsMaxLatency(c, 20)), toStrings(diGraph.getPathMaxLatency("A", "C", 20)));
+    }
+
+    private static List<String> toStrings(List<Trace> traces) {
+        return traces.stream().map(Trace::toString).sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    public void testReachable() {
+        assertTrue(scc.isReachable("A", "C"));
+        assertTrue(scc.isReachable("C", "C"));
+        assertFalse(scc.isReachable("C", "A"));
+        assertFalse(scc.isReachable("A", "A"));
+        assertFalse(scc.isReachable("X", "A"));
+
+        IndexedGraph graph = scc.getGraph();
+        assertFalse(scc.mayReach(graph.getId("C"), graph.getId("A")));
+    }
+
+    /**
+     * Loops only exist in graphs built from edge lists, a node with a loop is a
+     * cycle of its own.
+     */
+    @Test
+    public void testLoop() {
+        IndexedGraph graph = IndexedGraph.of(3, new int[] { 0, 1, 1 }, new int[] { 1, 1, 2 }, new int[] { 1, 2, 3 });
+        StronglyConnectedComponents loop = new StronglyConnectedComponents(graph);
+
+        assertEquals(3, loop.count());
+        assertFalse(loop.isCyclic(loop.component(0)));
+        assertTrue(loop.isCyclic(loop.component(1)));
+        assertFalse(loop.isAcyclic());
+        assertTrue(loop.isReachable("1", "1"));
+        assertFalse(loop.isReachable("0", "0"));
+
+        CriticalPath path = new CriticalPath(graph, "0");
+        assertEquals("1-1", path.getBlockingCycle().toString());
+    }
+
+    @Test
+    public void testTopologicalOrder() {
+        DiGraph diGraph = new DiGraph("DC1, CB1, BA1, DA5, XY1, YX1, YA1");
+        StronglyConnectedComponents dag = new StronglyConnectedComponents(diGraph);
+
+        assertEquals(5, dag.count()); // D, C, B, A and X-Y
+        assertTrue(dag.component("D") < dag.component("C"));
+        assertTrue(dag.component("C") < dag.component("B"));
+        assertTrue(dag.component("B") < dag.component("A"));
+        assertTrue(dag.component("X") < dag.component("A"));
+        assertEquals(dag.component("X"), dag.component("Y"));
+
+        for (int c = 0; c < dag.count(); c++) {
+            for (int e = dag.firstDagEdge(c); e < dag.endDagEdge(c); e++) {
+                assertTrue(c < dag.dagTarget(e));
+            }
+        }
+    }
+
+    /**
+     * A recursive implementation overflows the stack on long chains.
+     */
+    @Test
+    public void testLongChain() {
+        int n = 200_000;
+        DiGraph diGraph = new DiGraph();
+        for (int i = 0; i < n - 1; i++) {
+            diGraph.connect(String.valueOf(i), String.valueOf(i + 1), 1);
+        }
+
+        StronglyConnectedComponents chain = new StronglyConnectedComponents(diGraph);
+        assertEquals(n, chain.count());
+        assertTrue(chain.isAcyclic());
+
+        // close the chain to a single cycle
+        diGraph.connect(String.valueOf(n - 1), "0", 1);
+        StronglyConnectedComponents cycle = new StronglyConnectedComponents(diGraph);
+        assertEquals(1, cycle.count());
+        assertEquals(0, cycle.dagEdgeCount());
+    }
+
+}
@@ -0,0 +1,119 @@
+package de.zeus.digraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class TestTopologyGenerator {
+
+    private static class Edges implements TopologyGenerator.EdgeSink {
+
+        List<Long> edges = new ArrayList<>();
+        Set<Long> distinct = new HashSet<>();
+        int[] inDegree;
+        boolean loops;
+
+        Edges(int n) {
+            inDegree = new int[n];
+        }
+
+        @Override
+        public void edge(int from, int to, int latency) {
+            assertTrue(latency >= 1);
+            loops |= from == to;
+            edges.add((long) from << 32 | to);
+            distinct.add((long) from << 32 | to);
+            inDegree[to]++;
+        }
+
+        IndexedGraph graph() {
+            int[] from = new int[edges.size()];
+            int[] to = new int[edges.size()];
+            for (int i = 0; i < from.length; i++) {
+                from[i] = (int) (edges.get(i) >>> 32);
+                to[i] = (int) (long) edges.get(i);
+            }
+            return IndexedGraph.of(inDegree.length, from, to, new int[from.length]);
+        }
+    }
+
+    @Test
+    public void testErdosRenyi() throws IOException {
+        Edges edges = new Edges(10_000);
+        long count = new TopologyGenerator(7).erdosRenyi(10_000, 4, edges);
+
+        assertEquals(count, edges.edges.size());
+        assertEquals(count, edges.distinct.size());
+        assertFalse(edges.loops);
+        assertTrue(Math.abs(count - 40_000) < 1_000, "edges " + count);
+    }
+
+    @Test
+    public void testDeterministic() throws IOException {
+        Edges a = new Edges(1_000);
+        Edges b = new Edges(1_000);
+        Edges c = new Edges(1_000);
+        new TopologyGenerator(42).barabasiAlbert(1_000, 3, a);
+        new TopologyGenerator(42).barabasiAlbert(1_000, 3, b);
+        new TopologyGenerator(43).barabasiAlbert(1_000, 3, c);
+
+        assertEquals(a.edges, b.edges);
+        assertNotEquals(a.edges, c.edges);
+    }
+
+    @Test
+    public void testBarabasiAlbert() throws IOException {
+        Edges edges = new Edges(10_000);
+        long count = new TopologyGenerator(1).barabasiAlbert(10_000, 3, edges);
+
+        // 6 edges of the clique of 4 nodes + 3 per further node
+        assertEquals(6 + 3 * (10_000 - 4), count);
+        assertEquals(count, edges.distinct.size());
+        assertFalse(edges.loops);
+
+        // scale free: hubs far above the average in degree of 3
+        int max = 0;
+        for (int degree : edges.inDegree) {
+            max = Math.max(max, degree);
+        }
+        assertTrue(max > 100, "max in degree " + max);
+    }
+
+    /**
+     * Too many edges for the endpoint array fail up front, before any edge is
+     * generated.
+     */
+    @Test
+    public void testBarabasiAlbertTooLarge() {
+        Edges edges = new Edges(1);
+        assertThrows(IllegalArgumentException.class,
+                () -> new TopologyGenerator(1).barabasiAlbert(400_000_000, 3, edges));
+        assertTrue(edges.distinct.isEmpty());
+    }
+
+    @Test
+    public void testMesh() throws IOException {
+        Edges acyclic = new Edges(600);
+        assertEquals(5 * 100 * 3, new TopologyGenerator(3).mesh(6, 100, 3, 0, acyclic));
+        assertEquals(acyclic.edges.size(), acyclic.distinct.size());
+        assertTrue(new StronglyConnectedComponents(acyclic.graph()).isAcyclic());
+
+        Edges cyclic = new Edges(600);
+        long count = new TopologyGenerator(3).mesh(6, 100, 3, 0.2, cyclic);
+        assertTrue(count > 5 * 100 * 3 + 50, "edges " + count);
+        assertEquals(cyclic.edges.size(), cyclic.distinct.size());
+        assertFalse(cyclic.loops);
+        assertFalse(new StronglyConnectedComponents(cyclic.graph()).isAcyclic());
+    }
+
+}
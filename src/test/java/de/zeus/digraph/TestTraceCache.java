@@ -0,0 +1,122 @@
+package de.zeus.digraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class TestTraceCache {
+
+    private static DiGraph sample() {
+        return new DiGraph("AB5, BC4, CD8, DC8, DE6, AD5, CE2, EB3, AE7");
+    }
+
+    @Test
+    public void testLatency() {
+        TraceCache cache = new TraceCache(sample(), 100);
+
+        assertEquals(9, cache.getLatency("A-B-C"));
+        assertEquals(5, cache.getLatency("A-D"));
+        assertEquals(13, cache.getLatency("A-D-C"));
+        assertEquals(22, cache.getLatency("A-E-B-C-D"));
+        assertEquals(-1, cache.getLatency("A-E-D"));
+        assertEquals(-1, cache.getLatency("X-A"));
+        assertThrows(RuntimeException.class, () -> cache.getLatency("A--B"));
+    }
+
+    @Test
+    public void testResumeFromPrefix() {
+        TraceCache cache = new TraceCache(sample(), 100);
+
+        assertEquals(22, cache.getLatency("A-E-B-C-D"));
+        assertEquals(4, cache.getComputedHops());
+
+        // shares A-E-B-C, only C-E is computed
+        assertEquals(16, cache.getLatency("A-E-B-C-E"));
+        assertEquals(5, cache.getComputedHops());
+        assertEquals(3, cache.getCachedHops());
+
+        // fully cached
+        assertEquals(22, cache.getLatency("A-E-B-C-D"));
+        assertEquals(5, cache.getComputedHops());
+    }
+
+    @Test
+    public void testInvalidation() {
+        DiGraph diGraph = sample();
+        TraceCache cache = new TraceCache(diGraph, 100);
+
+        assertEquals(22, cache.getLatency("A-E-B-C-D"));
+        assertEquals(13, cache.getLatency("A-D-C"));
+        int size = cache.size();
+
+        diGraph.getEdge("E", "B").setLatency(10);
+
+        // A-E-B, A-E-B-C and A-E-B-C-D are dropped
+        assertEquals(size - 3, cache.size());
+        assertEquals(29, cache.getLatency("A-E-B-C-D"));
+        assertEquals(13, cache.getLatency("A-D-C"));
+
+        // an edge occurring twice
+        assertEquals(24, cache.getLatency("C-D-C-D"));
+        diGraph.getEdge("C", "D").setLatency(1);
+        assertEquals(10, cache.getLatency("C-D-C-D"));
+    }
+
+    @Test
+    public void testEviction() {
+        DiGraph diGraph = sample();
+        TraceCache cache = new TraceCache(diGraph, 5);
+
+        cache.getLatency("A-E-B-C-D"); // 5 prefixes
+        assertEquals(5, cache.size());
+
+        cache.getLatency("A-D-C"); // A stays, A-D and A-D-C evict the deepest prefixes
+        assertEquals(5, cache.size());
+        assertEquals(13, cache.getLatency("A-D-C"));
+        assertEquals(22, cache.getLatency("A-E-B-C-D"));
+    }
+
+    @Test
+    public void testClose() {
+        DiGraph diGraph = sample();
+        TraceCache cache = new TraceCache(diGraph, 100);
+
+        cache.getLatency("A-B-C");
+        cache.close();
+        assertEquals(0, cache.size());
+
+        diGraph.getEdge("A", "B").setLatency(1); // no longer notified
+        assertEquals(5, cache.getLatency("A-B-C"));
+    }
+
+    @Test
+    public void testAgainstDiGraph() {
+        DiGraph diGraph = sample();
+        TraceCache cache = new TraceCache(diGraph, 20);
+        Random random = new Random(3);
+        String[] names = { "A", "B", "C", "D", "E" };
+
+        for (int i = 0; i < 5_000; i++) {
+            StringBuilder trace = new StringBuilder(names[random.nextInt(5)]);
+            for (int hop = 0; hop < 1 + random.nextInt(6); hop++) {
+                trace.append('-').append(names[random.nextInt(5)]);
+            }
+
+            if (i % 100 == 0) {
+                String from = names[random.nextInt(5)];
+                for (Edge edge : diGraph.getNodes().stream().filter(n -> n.getName().equals(from)).findFirst().get()
+                        .getEdges().values()) {
+                    edge.setLatency(random.nextInt(20));
+                }
+            }
+
+            assertEquals(diGraph.getLatency(trace.toString()), cache.getLatency(trace.toString()), trace.toString());
+            assertTrue(cache.size() <= 20);
+        }
+    }
+
+}